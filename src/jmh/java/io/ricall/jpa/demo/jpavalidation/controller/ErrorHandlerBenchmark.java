@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.ricall.jpa.demo.jpavalidation.config.DatabaseExecutorProperties;
+import io.ricall.jpa.demo.jpavalidation.entity.Product;
+import io.ricall.jpa.demo.jpavalidation.model.BindErrorMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BindException;
+import org.springframework.validation.FieldError;
+
+import java.util.concurrent.TimeUnit;
+
+@Fork(1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ErrorHandlerBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int fieldErrors;
+
+    private ErrorHandler errorHandler;
+    private BindException bindException;
+
+    @Setup
+    public void setup() {
+        errorHandler = new ErrorHandler(new DatabaseExecutorProperties(), new SimpleMeterRegistry());
+        bindException = new BindException(new Product(), "product");
+        for (int index = 0; index < fieldErrors; index++) {
+            bindException.addError(new FieldError("product", "field" + index, "rejected value " + index, false,
+                    new String[] {"NotNull"}, null, "must not be null"));
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<BindErrorMessage> handleBindException() {
+        return errorHandler.handleBindException(bindException);
+    }
+
+}
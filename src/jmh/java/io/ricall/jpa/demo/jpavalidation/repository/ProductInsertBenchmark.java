@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.repository;
+
+import io.ricall.jpa.demo.jpavalidation.entity.PooledSequenceGenerator;
+import io.ricall.jpa.demo.jpavalidation.entity.Product;
+import io.ricall.jpa.demo.jpavalidation.entity.ProductType;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.dialect.H2Dialect;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.persistence.EntityManager;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Compares persisting products through Hibernate with {@code IDENTITY} ids (each insert runs on its own to read back
+ * the generated key) against the pooled-lo sequence ids of {@link Product} (one sequence call per block of ids and
+ * batched inserts). Both cases persist and flush through an {@link EntityManager} in chunks of the JDBC batch size,
+ * the way {@code saveAll} does, so the numbers include the id generators themselves.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ProductInsertBenchmark {
+
+    private static final int ROWS = 1000;
+    private static final int BATCH_SIZE = 50;
+    private static final LocalDateTime ROLE_START = LocalDateTime.of(2021, 1, 15, 12, 0);
+
+    /**
+     * Products with pooled-lo sequence ids, for each allocation size.
+     */
+    @State(Scope.Benchmark)
+    public static class SequenceIds extends Database {
+        @Param({"1", "50"})
+        private int allocationSize;
+
+        @Setup
+        public void setup() {
+            open("sequence-" + allocationSize, Product.class, allocationSize);
+        }
+    }
+
+    /**
+     * Products with {@code IDENTITY} ids, the allocation size doesn't apply.
+     */
+    @State(Scope.Benchmark)
+    public static class IdentityIds extends Database {
+        @Setup
+        public void setup() {
+            open("identity", IdentityProduct.class, 1);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long identityInserts(IdentityIds database) {
+        return database.insert(row -> IdentityProduct.builder()
+                .name("product " + row)
+                .type(database.type)
+                .category("category")
+                .subCategory("subCategory")
+                .roleStart(ROLE_START)
+                .build(), IdentityProduct::getId);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long pooledSequenceInserts(SequenceIds database) {
+        return database.insert(row -> Product.builder()
+                .name("product " + row)
+                .type(database.type)
+                .category("category")
+                .subCategory("subCategory")
+                .roleStart(ROLE_START)
+                .build(), Product::getId);
+    }
+
+    /**
+     * An in-memory H2 database with the schema Hibernate generates for the product entity being measured, so the
+     * sequence increment matches the allocation size.
+     */
+    public abstract static class Database {
+        private StandardServiceRegistry registry;
+        private SessionFactory sessionFactory;
+        private Class<?> entity;
+        private ProductType type;
+
+        protected void open(String name, Class<?> productEntity, int allocationSize) {
+            entity = productEntity;
+            registry = new StandardServiceRegistryBuilder()
+                    .applySetting(AvailableSettings.URL, "jdbc:h2:mem:insert-benchmark-" + name + ";DB_CLOSE_DELAY=-1")
+                    .applySetting(AvailableSettings.USER, "sa")
+                    .applySetting(AvailableSettings.PASS, "")
+                    .applySetting(AvailableSettings.DIALECT, H2Dialect.class.getName())
+                    .applySetting(AvailableSettings.HBM2DDL_AUTO, "create")
+                    .applySetting(AvailableSettings.STATEMENT_BATCH_SIZE, BATCH_SIZE)
+                    .applySetting(AvailableSettings.ORDER_INSERTS, true)
+                    .applySetting(AvailableSettings.USE_SECOND_LEVEL_CACHE, false)
+                    .applySetting(AvailableSettings.JPA_VALIDATION_MODE, "none")
+                    .applySetting(PooledSequenceGenerator.ALLOCATION_SIZE_SETTING, allocationSize)
+                    .build();
+            sessionFactory = new MetadataSources(registry)
+                    .addAnnotatedClass(ProductType.class)
+                    .addAnnotatedClass(productEntity)
+                    .buildMetadata()
+                    .buildSessionFactory();
+
+            type = ProductType.builder().type("X1").description("Type One").build();
+            inTransaction(entityManager -> entityManager.persist(type));
+        }
+
+        @Setup(Level.Iteration)
+        public void deleteProducts() {
+            inTransaction(entityManager -> entityManager.createQuery("delete from " + entity.getSimpleName()).executeUpdate());
+        }
+
+        @TearDown
+        public void close() {
+            sessionFactory.close();
+            StandardServiceRegistryBuilder.destroy(registry);
+        }
+
+        /**
+         * Persists {@code ROWS} products in one transaction, flushing and clearing every {@code BATCH_SIZE} products.
+         *
+         * @return the id of the last product
+         */
+        protected <T> long insert(IntFunction<T> product, Function<T, Long> id) {
+            final EntityManager entityManager = sessionFactory.createEntityManager();
+            try {
+                entityManager.getTransaction().begin();
+                T last = null;
+                for (int row = 0; row < ROWS; row++) {
+                    last = product.apply(row);
+                    entityManager.persist(last);
+                    if ((row + 1) % BATCH_SIZE == 0) {
+                        entityManager.flush();
+                        entityManager.clear();
+                    }
+                }
+                entityManager.getTransaction().commit();
+                return id.apply(last);
+            } finally {
+                entityManager.close();
+            }
+        }
+
+        private void inTransaction(Consumer<EntityManager> work) {
+            final EntityManager entityManager = sessionFactory.createEntityManager();
+            try {
+                entityManager.getTransaction().begin();
+                work.accept(entityManager);
+                entityManager.getTransaction().commit();
+            } finally {
+                entityManager.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.serdes;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.ricall.jpa.demo.jpavalidation.config.SerializationConfiguration;
+import io.ricall.jpa.demo.jpavalidation.entity.Product;
+import io.ricall.jpa.demo.jpavalidation.service.ProductTypeRegistry;
+import io.ricall.jpa.demo.jpavalidation.service.implementation.BenchmarkProductTypes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Product JSON round trips through an object mapper customised the same way the application's is.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ProductJsonBenchmark {
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private Product product;
+    private String json;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        final ProductTypeRegistry registry = BenchmarkProductTypes.registry();
+        final Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        new SerializationConfiguration().customizeJackson(registry, new SimpleMeterRegistry()).customize(builder);
+        final ObjectMapper mapper = builder.build();
+
+        writer = mapper.writerFor(Product.class);
+        reader = mapper.readerFor(Product.class);
+        product = Product.builder()
+                .id(1234)
+                .name("Product1")
+                .type(registry.fromType("X1"))
+                .category("insurance")
+                .subCategory("life insurance")
+                .roleStart(LocalDateTime.of(2021, Month.JANUARY, 3, 11, 0, 1))
+                .build();
+        json = writer.writeValueAsString(product);
+    }
+
+    @Benchmark
+    public String serialize() throws JsonProcessingException {
+        return writer.writeValueAsString(product);
+    }
+
+    @Benchmark
+    public Product deserialize() throws JsonProcessingException {
+        return reader.readValue(json);
+    }
+
+    @Benchmark
+    public Product roundTrip() throws JsonProcessingException {
+        return reader.readValue(writer.writeValueAsString(product));
+    }
+
+}
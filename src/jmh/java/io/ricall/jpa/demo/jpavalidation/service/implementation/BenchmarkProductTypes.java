@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.service.implementation;
+
+import io.ricall.jpa.demo.jpavalidation.entity.ProductType;
+import io.ricall.jpa.demo.jpavalidation.service.ProductTypeRegistry;
+
+import java.util.List;
+
+/**
+ * Product types and a registry over them for benchmarks that run without a Spring context.
+ */
+public final class BenchmarkProductTypes {
+
+    public static final List<ProductType> TYPES = List.of(
+            new ProductType(1, "T1", "Product type T1"),
+            new ProductType(2, "X1", "Test product"),
+            new ProductType(3, "R3", "Retail Three"),
+            new ProductType(4, "R4", "Retail Four"),
+            new ProductType(5, "R5", "Retail Five"));
+
+    private BenchmarkProductTypes() {
+    }
+
+    public static ProductTypeRegistry registry() {
+        return new SnapshotRegistry(new ProductTypeSnapshot(TYPES));
+    }
+
+    private static final class SnapshotRegistry implements ProductTypeRegistry {
+        private final ProductTypeSnapshot snapshot;
+
+        private SnapshotRegistry(ProductTypeSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public List<ProductType> getProductTypes() {
+            return snapshot.getTypes();
+        }
+
+        @Override
+        public ProductType fromType(CharSequence type) {
+            return snapshot.find(type);
+        }
+
+        @Override
+        public ProductType fromType(char[] buffer, int offset, int length) {
+            return snapshot.find(buffer, offset, length);
+        }
+
+        @Override
+        public void refresh() {
+            // the benchmark types never change
+        }
+    }
+
+}
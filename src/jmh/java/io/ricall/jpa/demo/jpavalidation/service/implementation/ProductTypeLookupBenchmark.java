@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.service.implementation;
+
+import io.ricall.jpa.demo.jpavalidation.entity.ProductType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.ricall.jpa.demo.jpavalidation.service.implementation.BenchmarkProductTypes.TYPES;
+
+@Fork(1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProductTypeLookupBenchmark {
+
+    private ProductTypeSnapshot snapshot;
+    private Cache cache;
+    private char[] buffer;
+    private int offset;
+    private int length;
+
+    @Setup
+    public void setup() {
+        snapshot = new ProductTypeSnapshot(TYPES);
+        cache = new ConcurrentMapCache("type");
+        TYPES.forEach(type -> cache.put(type.getType(), type));
+
+        // The type code sits in the middle of the buffer, the same way it does in a parser's text buffer
+        buffer = "{\"type\":\"R4\"}".toCharArray();
+        offset = 9;
+        length = 2;
+    }
+
+    @Benchmark
+    public ProductType registryCharacterBuffer() {
+        return snapshot.find(buffer, offset, length);
+    }
+
+    @Benchmark
+    public ProductType registryString() {
+        return snapshot.find(new String(buffer, offset, length));
+    }
+
+    @Benchmark
+    public Object concurrentMapCache() {
+        return cache.get(new String(buffer, offset, length)).get();
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.loadtest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Thresholds the load test results are checked against. Each threshold is keyed by the endpoint and the measure, e.g.
+ * {@code find-product.p99=25} fails the run when 99% of product reads took longer than 25ms. Endpoints and measures
+ * without a threshold are not checked.
+ */
+public class Baseline {
+    private static final Map<String, Double> PERCENTILES = percentiles();
+    private static final String THROUGHPUT = "throughput";
+    private static final String ERROR_RATE = "error-rate";
+
+    private final Properties thresholds;
+
+    public Baseline(Properties thresholds) {
+        this.thresholds = thresholds;
+    }
+
+    public static Baseline load(Path path) throws IOException {
+        final Properties thresholds = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            thresholds.load(reader);
+        }
+        return new Baseline(thresholds);
+    }
+
+    /**
+     * @return a description of every threshold the endpoint exceeded
+     */
+    public List<String> check(Endpoint endpoint, EndpointStatistics statistics, Duration measured) {
+        final List<String> failures = new ArrayList<>();
+        PERCENTILES.forEach((measure, percentile) -> atMost(failures, endpoint, measure, statistics.getPercentileMillis(percentile)));
+        atMost(failures, endpoint, ERROR_RATE, statistics.getErrorRate());
+        final String minimum = thresholds.getProperty(endpoint.getKey() + "." + THROUGHPUT);
+        final double throughput = statistics.getThroughput(measured);
+        if (minimum != null && throughput < Double.parseDouble(minimum)) {
+            failures.add(String.format("%s %s %.1f requests/s is below %s", endpoint.getDescription(), THROUGHPUT, throughput, minimum));
+        }
+        return failures;
+    }
+
+    private void atMost(List<String> failures, Endpoint endpoint, String measure, double actual) {
+        final String maximum = thresholds.getProperty(endpoint.getKey() + "." + measure);
+        if (maximum != null && actual > Double.parseDouble(maximum)) {
+            failures.add(String.format("%s %s %.3f exceeds %s", endpoint.getDescription(), measure, actual, maximum));
+        }
+    }
+
+    private static Map<String, Double> percentiles() {
+        final Map<String, Double> percentiles = new LinkedHashMap<>();
+        percentiles.put("p50", 50.0);
+        percentiles.put("p90", 90.0);
+        percentiles.put("p99", 99.0);
+        percentiles.put("p999", 99.9);
+        return percentiles;
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.loadtest;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Locale;
+
+/**
+ * The endpoints exercised by the load test and the share of the requests each one receives.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum Endpoint {
+    CREATE_PRODUCT("POST /product", 20),
+    FIND_PRODUCT("GET /product/{id}", 60),
+    PRODUCT_TYPES("GET /productTypes", 15),
+    CACHE("POST /cache", 5);
+
+    public static final int TOTAL_WEIGHT = 100;
+
+    private final String description;
+    private final int weight;
+
+    /**
+     * @return the prefix of this endpoint's thresholds in the baseline file, e.g. {@code find-product}
+     */
+    public String getKey() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    /**
+     * @param roll a random number between 0 and {@link #TOTAL_WEIGHT} (exclusive)
+     * @return the endpoint the roll selects
+     */
+    public static Endpoint select(int roll) {
+        int remaining = roll % TOTAL_WEIGHT;
+        Endpoint selected = values()[0];
+        for (final Endpoint endpoint : values()) {
+            if (remaining >= 0) {
+                selected = endpoint;
+            }
+            remaining -= endpoint.weight;
+        }
+        return selected;
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds the requests sent to the application under test.
+ */
+public class LoadTarget {
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final String CONTENT_TYPE = "Content-Type";
+    private static final String PRODUCT = "/product";
+
+    private final URI baseUri;
+    private final List<Long> productIds;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public LoadTarget(URI baseUri, List<Long> productIds) {
+        this.baseUri = baseUri;
+        this.productIds = List.copyOf(productIds);
+    }
+
+    public Endpoint nextEndpoint() {
+        return Endpoint.select(ThreadLocalRandom.current().nextInt(Endpoint.TOTAL_WEIGHT));
+    }
+
+    public HttpRequest request(Endpoint endpoint) {
+        final HttpRequest.Builder builder;
+        switch (endpoint) {
+            case CREATE_PRODUCT:
+                builder = createProduct();
+                break;
+            case FIND_PRODUCT:
+                builder = HttpRequest.newBuilder(uri(PRODUCT + "/" + randomProductId())).GET();
+                break;
+            case PRODUCT_TYPES:
+                builder = HttpRequest.newBuilder(uri("/productTypes")).header("Accept-Encoding", "gzip").GET();
+                break;
+            default:
+                builder = HttpRequest.newBuilder(uri("/cache"))
+                        .header(CONTENT_TYPE, "text/plain")
+                        .POST(BodyPublishers.ofString("EVICT type X1"));
+                break;
+        }
+        return builder.timeout(TIMEOUT).build();
+    }
+
+    public HttpRequest.Builder createProduct() {
+        final String product = String.format("{\"name\":\"load test product %d\",\"type\":\"X1\",\"category\":\"load\","
+                + "\"subCategory\":\"test\",\"roleStart\":\"2021-01-03T11:00:01\",\"roleEnd\":null}", sequence.incrementAndGet());
+        return HttpRequest.newBuilder(uri(PRODUCT))
+                .header(CONTENT_TYPE, "application/json")
+                .POST(BodyPublishers.ofString(product));
+    }
+
+    private long randomProductId() {
+        return productIds.get(ThreadLocalRandom.current().nextInt(productIds.size()));
+    }
+
+    private URI uri(String path) {
+        return baseUri.resolve(path);
+    }
+
+}
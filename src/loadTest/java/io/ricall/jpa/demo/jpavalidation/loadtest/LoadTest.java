@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.ricall.jpa.demo.jpavalidation.JpaValidationApplication;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Boots the application on a random port against a fresh in-memory database migrated (and seeded) by Flyway, drives
+ * it with the configured workload, reports the latency percentiles and throughput of each endpoint and exits with a
+ * non zero status when the results exceed the thresholds in the baseline file.
+ */
+@Slf4j
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        final LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        final Baseline baseline = Baseline.load(settings.getBaseline());
+        final List<String> failures = new ArrayList<>();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(JpaValidationApplication.class)
+                .properties("server.port=0", "spring.datasource.url=jdbc:h2:mem:load-test;DB_CLOSE_DELAY=-1")
+                .run(args)) {
+            final int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+            final URI baseUri = URI.create("http://localhost:" + port);
+            final List<Long> productIds = seedProducts(client, new LoadTarget(baseUri, List.of()),
+                    context.getBean(ObjectMapper.class), settings.getSeedProducts());
+
+            final Map<Endpoint, EndpointStatistics> results = new Workload(settings, new LoadTarget(baseUri, productIds), client).run();
+
+            results.forEach((endpoint, statistics) -> {
+                report(endpoint, statistics, settings.getDuration());
+                failures.addAll(baseline.check(endpoint, statistics, settings.getDuration()));
+            });
+        }
+        failures.forEach(failure -> log.error(" --> Baseline exceeded: {}", failure));
+        System.exit(Math.min(failures.size(), 1));
+    }
+
+    private static List<Long> seedProducts(HttpClient client, LoadTarget target, ObjectMapper objectMapper, int count)
+            throws IOException, InterruptedException {
+        final List<Long> ids = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            final HttpResponse<String> response = client.send(target.createProduct().build(), BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Unable to seed products: " + response.statusCode() + " " + response.body());
+            }
+            ids.add(objectMapper.readTree(response.body()).get("id").asLong());
+        }
+        log.info(" --> Seeded {} products", ids.size());
+        return ids;
+    }
+
+    private static void report(Endpoint endpoint, EndpointStatistics statistics, Duration measured) {
+        log.info(" --> {}", String.format("%-20s %7d requests %5d errors %8.1f requests/s"
+                        + " p50 %8.3fms p90 %8.3fms p99 %8.3fms p99.9 %8.3fms max %8.3fms",
+                endpoint.getDescription(),
+                statistics.getCount(),
+                statistics.getErrors(),
+                statistics.getThroughput(measured),
+                statistics.getPercentileMillis(50),
+                statistics.getPercentileMillis(90),
+                statistics.getPercentileMillis(99),
+                statistics.getPercentileMillis(99.9),
+                statistics.getMaxMillis()));
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.loadtest;
+
+import lombok.Builder;
+import lombok.Value;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Load test settings, read from {@code load.*} system properties which the {@code loadTest} task passes on from the
+ * matching project properties.
+ */
+@Value
+@Builder
+public class LoadTestSettings {
+
+    public enum Model {
+        /** requests arrive at the configured rate however long earlier requests take */
+        OPEN,
+        /** a fixed number of clients share the configured rate, each waiting for its previous response */
+        CLOSED
+    }
+
+    Model model;
+    int rate;
+    int concurrency;
+    Duration warmup;
+    Duration duration;
+    int seedProducts;
+    Path baseline;
+
+    public static LoadTestSettings fromSystemProperties() {
+        return LoadTestSettings.builder()
+                .model(Model.valueOf(System.getProperty("load.model", "open").toUpperCase(Locale.ROOT)))
+                .rate(Integer.getInteger("load.rate", 200))
+                .concurrency(Integer.getInteger("load.concurrency", 32))
+                .warmup(DurationStyle.detectAndParse(System.getProperty("load.warmup", "10s")))
+                .duration(DurationStyle.detectAndParse(System.getProperty("load.duration", "30s")))
+                .seedProducts(Integer.getInteger("load.seed-products", 100))
+                .baseline(Path.of(System.getProperty("load.baseline", "config/loadtest/baseline.properties")))
+                .build();
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests on a fixed schedule derived from the configured rate. Every latency is measured from the time the
+ * request was scheduled to be sent rather than the time it was actually sent, so when the application (or a closed
+ * model client waiting on it) falls behind the time requests spend waiting is counted instead of being omitted.
+ */
+@Slf4j
+public class Workload {
+    private static final long STOP_TIMEOUT_SECONDS = 60;
+
+    private final LoadTestSettings settings;
+    private final LoadTarget target;
+    private final HttpClient client;
+    private final Map<Endpoint, EndpointStatistics> statistics = new EnumMap<>(Endpoint.class);
+    private final long interval;
+
+    private long start;
+    private long measureFrom;
+    private long end;
+
+    public Workload(LoadTestSettings settings, LoadTarget target, HttpClient client) {
+        this.settings = settings;
+        this.target = target;
+        this.client = client;
+        this.interval = TimeUnit.SECONDS.toNanos(1) / settings.getRate();
+        for (final Endpoint endpoint : Endpoint.values()) {
+            statistics.put(endpoint, new EndpointStatistics());
+        }
+    }
+
+    /**
+     * Runs the warm up followed by the measured period.
+     *
+     * @return the statistics of the measured period for each endpoint
+     */
+    public Map<Endpoint, EndpointStatistics> run() throws InterruptedException, TimeoutException {
+        start = System.nanoTime();
+        measureFrom = start + settings.getWarmup().toNanos();
+        end = measureFrom + settings.getDuration().toNanos();
+        log.info(" --> Running a {} model load test at {} requests/s", settings.getModel(), settings.getRate());
+        if (settings.getModel() == LoadTestSettings.Model.OPEN) {
+            runOpen();
+        } else {
+            runClosed();
+        }
+        return statistics;
+    }
+
+    private void runOpen() throws InterruptedException, TimeoutException {
+        final List<CompletableFuture<?>> pending = new ArrayList<>();
+        for (long index = 0; scheduled(index) < end; index++) {
+            final long intended = scheduled(index);
+            sleepUntil(intended);
+            final Endpoint endpoint = target.nextEndpoint();
+            pending.add(client.sendAsync(target.request(endpoint), BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> record(endpoint, intended, response)));
+        }
+        try {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).get(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            log.debug(" --> Requests failed, they have been counted as errors: {}", e.getMessage());
+        }
+    }
+
+    private void runClosed() throws InterruptedException, TimeoutException {
+        final AtomicLong next = new AtomicLong();
+        final ExecutorService clients = Executors.newFixedThreadPool(settings.getConcurrency());
+        for (int worker = 0; worker < settings.getConcurrency(); worker++) {
+            clients.execute(() -> runClient(next));
+        }
+        clients.shutdown();
+        if (!clients.awaitTermination(settings.getWarmup().plus(settings.getDuration()).toSeconds() + STOP_TIMEOUT_SECONDS,
+                TimeUnit.SECONDS)) {
+            throw new TimeoutException("Load test clients did not finish");
+        }
+    }
+
+    private void runClient(AtomicLong next) {
+        long intended = scheduled(next.getAndIncrement());
+        while (intended < end && !Thread.currentThread().isInterrupted()) {
+            sleepUntil(intended);
+            final Endpoint endpoint = target.nextEndpoint();
+            record(endpoint, intended, send(target.request(endpoint)));
+            intended = scheduled(next.getAndIncrement());
+        }
+    }
+
+    private HttpResponse<Void> send(HttpRequest request) {
+        HttpResponse<Void> response = null;
+        try {
+            response = client.send(request, BodyHandlers.discarding());
+        } catch (IOException e) {
+            log.debug(" --> Request failed: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return response;
+    }
+
+    private void record(Endpoint endpoint, long intended, HttpResponse<?> response) {
+        if (intended >= measureFrom) {
+            final boolean succeeded = response != null && response.statusCode() < 400;
+            statistics.get(endpoint).record(System.nanoTime() - intended, succeeded);
+        }
+    }
+
+    private long scheduled(long index) {
+        return start + index * interval;
+    }
+
+    private static void sleepUntil(long time) {
+        long remaining = time - System.nanoTime();
+        while (remaining > 0) {
+            LockSupport.parkNanos(remaining);
+            remaining = time - System.nanoTime();
+        }
+    }
+
+}
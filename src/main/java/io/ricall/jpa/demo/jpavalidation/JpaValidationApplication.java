@@ -25,10 +25,14 @@ package io.ricall.jpa.demo.jpavalidation;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @EnableCaching
 @SpringBootApplication
+@ConfigurationPropertiesScan
+@EnableScheduling
 public class JpaValidationApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.cache;
+
+import io.ricall.jpa.demo.jpavalidation.service.ProductTypeRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.Set;
+
+import static io.ricall.jpa.demo.jpavalidation.config.CacheConfiguration.PRODUCT_TYPE_CACHE;
+import static io.ricall.jpa.demo.jpavalidation.config.CacheConfiguration.TYPE_CACHE;
+
+/**
+ * Invalidates the caches on this node, keeping the {@link ProductTypeRegistry} in step with the product type caches.
+ * The registry is refreshed first as that also evicts the Hibernate second level cache the caches reload from.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CacheInvalidator {
+    private static final Set<String> PRODUCT_TYPE_CACHES = Set.of(PRODUCT_TYPE_CACHE, TYPE_CACHE);
+
+    private final CacheManager cacheManager;
+    private final ProductTypeRegistry productTypeRegistry;
+
+    public void resetAll() {
+        productTypeRegistry.refresh();
+        cacheManager.getCacheNames().stream()
+                .map(cacheManager::getCache)
+                .filter(Objects::nonNull)
+                .forEach(this::rebuild);
+    }
+
+    public void reset(Cache cache) {
+        refreshProductTypes(cache);
+        rebuild(cache);
+    }
+
+    public void evict(Cache cache, Object key) {
+        refreshProductTypes(cache);
+        cache.evictIfPresent(key);
+    }
+
+    /**
+     * Applies an invalidation by name, a {@code null} cache name resets every cache and a {@code null} key resets the
+     * whole cache.
+     *
+     * @param cacheName the cache to invalidate
+     * @param key the key to evict
+     */
+    public void apply(String cacheName, String key) {
+        if (cacheName == null) {
+            resetAll();
+        } else {
+            final Cache cache = cacheManager.getCache(cacheName);
+            if (cache == null) {
+                log.warn(" --> Ignoring invalidation of unknown cache {}", cacheName);
+            } else if (key == null) {
+                reset(cache);
+            } else {
+                evict(cache, key);
+            }
+        }
+    }
+
+    private void rebuild(Cache cache) {
+        if (cache instanceof ManagedCache) {
+            ((ManagedCache) cache).rebuild();
+        } else {
+            cache.clear();
+        }
+    }
+
+    private void refreshProductTypes(Cache cache) {
+        if (PRODUCT_TYPE_CACHES.contains(cache.getName())) {
+            productTypeRegistry.refresh();
+        }
+    }
+
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Spring {@link org.springframework.cache.Cache} backed by a bounded Caffeine cache.
+ *
+ * <p>Caffeine uses a W-TinyLFU admission policy, so a burst of keys that are only requested once (e.g. junk type codes)
+ * can't push the frequently used entries out. {@code null} values are never stored, a {@code null} result simply
+ * leaves the key uncached.
+ *
+ * <p>Concurrent misses for the same key are collapsed into a single load by {@link #get(Object, Callable)}, and
+ * {@link #rebuild()} reloads the cache in the background while the current entries keep being served.
+ */
+@Slf4j
+public class ManagedCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final Supplier<Cache<Object, Object>> factory;
+    private final Function<Object, Object> loader;
+    private final ConcurrentStatsCounter statsCounter;
+    private final Executor rebuildExecutor;
+    private final AtomicReference<Cache<Object, Object>> cache;
+    private final LongAdder puts = new LongAdder();
+
+    /**
+     * Writes hold the read lock, the write lock is only taken to start a rebuild and to swap its cache in, so no write
+     * can be applied to the old cache once the replacement is in use.
+     */
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private volatile Rebuild pending;
+    private CompletableFuture<Void> lastRebuild = CompletableFuture.completedFuture(null);
+
+    /**
+     * @param rebuildExecutor runs the reloads of {@link #rebuild()}, they block on the loader
+     */
+    public ManagedCache(String name, Supplier<Cache<Object, Object>> factory, Function<Object, Object> loader,
+                        ConcurrentStatsCounter statsCounter, Executor rebuildExecutor) {
+        super(false);
+        this.name = name;
+        this.factory = factory;
+        this.loader = loader;
+        this.statsCounter = statsCounter;
+        this.rebuildExecutor = rebuildExecutor;
+        this.cache = new AtomicReference<>(factory.get());
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Cache<Object, Object> getNativeCache() {
+        return cache.get();
+    }
+
+    public CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    /**
+     * @return the number of values stored by {@link #put} and {@link #putIfAbsent}, values loaded on a miss or by a
+     * rebuild are counted as loads in {@link #stats()} instead
+     */
+    public long putCount() {
+        return puts.sum();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return (T) fromStoreValue(cache.get().get(key, missingKey -> load(missingKey, valueLoader)));
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        write(key, current -> {
+            if (value == null) {
+                current.invalidate(key);
+            } else {
+                current.put(key, value);
+                puts.increment();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return toValueWrapper(write(key, current -> {
+            final Object existing;
+            if (value == null) {
+                existing = current.getIfPresent(key);
+            } else {
+                existing = current.asMap().putIfAbsent(key, value);
+                if (existing == null) {
+                    puts.increment();
+                }
+            }
+            return existing;
+        }));
+    }
+
+    @Override
+    public void evict(Object key) {
+        write(key, current -> {
+            current.invalidate(key);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        return write(key, current -> current.asMap().remove(key)) != null;
+    }
+
+    @Override
+    public void clear() {
+        whileNotSwapping(() -> {
+            cache.get().invalidateAll();
+            final Rebuild rebuild = pending;
+            if (rebuild != null) {
+                rebuild.clear();
+            }
+        });
+    }
+
+    /**
+     * Reloads every key of the current cache into a new cache and swaps it in once it is complete.
+     *
+     * <p>Until the swap the current cache keeps serving requests, so a reset doesn't cause a burst of misses. Puts and
+     * evictions made while the cache is being reloaded are applied to the new cache too, and win over the values it
+     * loads. Rebuilds run one at a time, a rebuild requested while another runs starts once it has finished. Caches
+     * without a loader are swapped for an empty cache.
+     *
+     * @return a future that completes once the new cache is in use
+     */
+    public synchronized CompletableFuture<Void> rebuild() {
+        final CompletableFuture<Void> next = lastRebuild
+                .exceptionally(failure -> null)
+                .thenRunAsync(this::reload, rebuildExecutor);
+        next.whenComplete((ignored, failure) -> {
+            if (failure != null) {
+                log.warn(" --> Rebuilding cache {} failed, the current entries are kept", name, failure);
+            }
+        });
+        lastRebuild = next;
+        return next;
+    }
+
+    private void reload() {
+        final Rebuild rebuild = new Rebuild(factory.get());
+        final List<Object> keys = startRebuild(rebuild);
+        try {
+            if (loader != null) {
+                for (final Object key : keys) {
+                    rebuild.load(key, loader.apply(key));
+                }
+            }
+            whileSwapping(() -> cache.set(rebuild.replacement));
+        } finally {
+            whileSwapping(this::endRebuild);
+        }
+    }
+
+    private List<Object> startRebuild(Rebuild rebuild) {
+        final Lock lock = swapLock.writeLock();
+        lock.lock();
+        try {
+            pending = rebuild;
+            return List.copyOf(cache.get().asMap().keySet());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void endRebuild() {
+        pending = null;
+    }
+
+    /**
+     * Applies a write to the current cache, then copies the key's resulting value to the cache being rebuilt.
+     */
+    private <T> T write(Object key, Function<Cache<Object, Object>, T> operation) {
+        final Lock lock = swapLock.readLock();
+        lock.lock();
+        try {
+            final Cache<Object, Object> current = cache.get();
+            final T result = operation.apply(current);
+            final Rebuild rebuild = pending;
+            if (rebuild != null) {
+                rebuild.mirror(key, current);
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void whileNotSwapping(Runnable action) {
+        runLocked(swapLock.readLock(), action);
+    }
+
+    private void whileSwapping(Runnable action) {
+        runLocked(swapLock.writeLock(), action);
+    }
+
+    private static void runLocked(Lock lock, Runnable action) {
+        lock.lock();
+        try {
+            action.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        return cache.get().getIfPresent(key);
+    }
+
+    private static Object load(Object key, Callable<?> valueLoader) {
+        // -@cs[IllegalCatch] Callable.call() is declared to throw any exception
+        try {
+            return valueLoader.call();
+        } catch (Exception ex) {
+            throw new ValueRetrievalException(key, valueLoader, ex);
+        }
+    }
+
+    private static final class Rebuild {
+        private final Cache<Object, Object> replacement;
+        private final Set<Object> written = ConcurrentHashMap.newKeySet();
+        private volatile boolean cleared;
+
+        private Rebuild(Cache<Object, Object> replacement) {
+            this.replacement = replacement;
+        }
+
+        /**
+         * Stores a reloaded value unless the key has been written since the rebuild started.
+         */
+        private void load(Object key, Object value) {
+            replacement.asMap().compute(key, (ignored, existing) -> {
+                Object stored = value;
+                if (cleared || written.contains(key)) {
+                    stored = existing;
+                }
+                return stored;
+            });
+        }
+
+        /**
+         * Copies the key's value in the current cache, reading it inside {@code compute} so concurrent writes of the
+         * same key leave the latest value behind.
+         */
+        private void mirror(Object key, Cache<Object, Object> current) {
+            written.add(key);
+            replacement.asMap().compute(key, (ignored, existing) -> current.asMap().get(key));
+        }
+
+        private void clear() {
+            cleared = true;
+            replacement.invalidateAll();
+        }
+    }
+
+}
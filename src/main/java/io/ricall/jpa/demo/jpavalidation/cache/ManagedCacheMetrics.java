@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.cache;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+public class ManagedCacheMetrics extends CacheMeterBinder {
+    private static final String LOAD = "cache.load";
+    private static final String RESULT = "result";
+
+    private final ManagedCache cache;
+
+    public ManagedCacheMetrics(ManagedCache cache, Iterable<Tag> tags) {
+        super(cache, cache.getName(), tags);
+        this.cache = cache;
+    }
+
+    @Override
+    protected Long size() {
+        return cache.getNativeCache().estimatedSize();
+    }
+
+    @Override
+    protected long hitCount() {
+        return cache.stats().hitCount();
+    }
+
+    @Override
+    protected Long missCount() {
+        return cache.stats().missCount();
+    }
+
+    @Override
+    protected Long evictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    @Override
+    protected long putCount() {
+        return cache.putCount();
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+        FunctionCounter.builder(LOAD, cache, statistic(CacheStats::loadSuccessCount))
+                .tags(getTagsWithCacheName())
+                .tag(RESULT, "success")
+                .description("The number of times cache lookup methods have successfully loaded a new value")
+                .register(registry);
+        FunctionCounter.builder(LOAD, cache, statistic(CacheStats::loadFailureCount))
+                .tags(getTagsWithCacheName())
+                .tag(RESULT, "failure")
+                .description("The number of times cache lookup methods failed to load a new value")
+                .register(registry);
+        TimeGauge.builder("cache.load.duration", cache, TimeUnit.NANOSECONDS, statistic(CacheStats::totalLoadTime))
+                .tags(getTagsWithCacheName())
+                .description("The time the cache has spent loading new values")
+                .register(registry);
+    }
+
+    private static ToDoubleFunction<ManagedCache> statistic(ToDoubleFunction<CacheStats> statistic) {
+        return managedCache -> statistic.applyAsDouble(managedCache.stats());
+    }
+
+}
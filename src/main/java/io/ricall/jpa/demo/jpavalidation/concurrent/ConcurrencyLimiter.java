@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.concurrent;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands out permits while fewer requests than the current {@link VegasLimit} are in flight, the time each permit is
+ * held feeds back into the limit.
+ */
+public class ConcurrencyLimiter implements MeterBinder {
+    private static final String GROUP = "group";
+
+    private final String name;
+    private final VegasLimit limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    public ConcurrencyLimiter(String name, VegasLimit limit) {
+        this.name = name;
+        this.limit = limit;
+    }
+
+    /**
+     * @return a permit that must be released when the request completes, or empty when the limit has been reached
+     */
+    public Optional<Permit> tryAcquire() {
+        final int current = inFlight.incrementAndGet();
+        if (current > limit.getLimit()) {
+            inFlight.decrementAndGet();
+            rejected.increment();
+            return Optional.empty();
+        }
+        return Optional.of(new Permit(current));
+    }
+
+    public int getLimit() {
+        return limit.getLimit();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("concurrency.limit", this, ConcurrencyLimiter::getLimit)
+                .tag(GROUP, name)
+                .description("The number of concurrent requests currently allowed")
+                .register(registry);
+        Gauge.builder("concurrency.in.flight", this, ConcurrencyLimiter::getInFlight)
+                .tag(GROUP, name)
+                .description("The number of requests currently holding a permit")
+                .register(registry);
+        FunctionCounter.builder("concurrency.rejected", this, ConcurrencyLimiter::getRejected)
+                .tag(GROUP, name)
+                .description("The number of requests rejected because the limit had been reached")
+                .register(registry);
+    }
+
+    public final class Permit {
+        private final long started = System.nanoTime();
+        private final int inFlightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * Releases the permit after the request succeeded, only the first release or drop counts.
+         */
+        public void release() {
+            complete(false);
+        }
+
+        /**
+         * Releases the permit after the request failed, which backs the limit off.
+         */
+        public void drop() {
+            complete(true);
+        }
+
+        private void complete(boolean dropped) {
+            if (released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+                limit.onSample(System.nanoTime() - started, inFlightAtStart, dropped);
+            }
+        }
+    }
+
+}
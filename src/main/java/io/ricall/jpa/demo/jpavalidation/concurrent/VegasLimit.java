@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.concurrent;
+
+/**
+ * Latency based concurrency limit in the style of TCP Vegas. The fastest response seen approximates the time taken
+ * without any queueing, comparing each sample against it estimates how many requests are queued in front of the
+ * database. The limit grows while that queue is short, shrinks once it grows and backs off whenever a request fails.
+ */
+public class VegasLimit {
+    private static final int ALPHA = 3;
+    private static final int BETA = 6;
+    private static final int PROBE_MULTIPLIER = 30;
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    private double limit;
+    private long noLoadTime;
+    private long samplesSinceProbe;
+
+    public VegasLimit(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Adjusts the limit after a request has completed.
+     *
+     * @param responseTime how long the request took in nanoseconds
+     * @param inFlight the number of requests in flight when the request started
+     * @param dropped whether the request failed or was rejected further down
+     */
+    public synchronized void onSample(long responseTime, int inFlight, boolean dropped) {
+        samplesSinceProbe++;
+        if (dropped) {
+            limit = bounded(limit - step());
+        } else if (responseTime > 0) {
+            if (noLoadTime == 0 || responseTime < noLoadTime || samplesSinceProbe > PROBE_MULTIPLIER * limit) {
+                // probing now and then lets the no load time rise when the database gets slower for good
+                noLoadTime = responseTime;
+                samplesSinceProbe = 0;
+            } else {
+                limit = bounded(next(responseTime, inFlight));
+            }
+        }
+    }
+
+    private double next(long responseTime, int inFlight) {
+        double next = limit;
+        // a mostly idle limiter says nothing about how much concurrency the database can take
+        if (inFlight * 2 >= limit) {
+            final double queued = Math.ceil(limit * (1 - (double) noLoadTime / responseTime));
+            if (queued < ALPHA * step()) {
+                next = limit + step();
+            } else if (queued > BETA * step()) {
+                next = limit - step();
+            }
+        }
+        return next;
+    }
+
+    private double step() {
+        return Math.max(1, Math.log10(limit));
+    }
+
+    private double bounded(double value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+
+}
@@ -23,24 +23,97 @@
 
 package io.ricall.jpa.demo.jpavalidation.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import io.ricall.jpa.demo.jpavalidation.cache.ManagedCache;
+import io.ricall.jpa.demo.jpavalidation.cache.ManagedCacheMetrics;
+import io.ricall.jpa.demo.jpavalidation.entity.ProductType;
+import io.ricall.jpa.demo.jpavalidation.repository.ProductTypeRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
 import org.springframework.cache.CacheManager;
-import org.springframework.cache.concurrent.ConcurrentMapCache;
 import org.springframework.cache.support.SimpleCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Configuration
 public class CacheConfiguration {
+    public static final String PRODUCT_TYPE_CACHE = "productType";
+    public static final String TYPE_CACHE = "type";
+    public static final String PRODUCT_CACHE = "product";
+    public static final String CACHE_REBUILD_EXECUTOR = "cacheRebuildExecutor";
+    private static final int REBUILD_QUEUE_CAPACITY = 100;
+
+    /**
+     * Runs the cache rebuilds, which block on the database, so they stay off the common fork join pool. Each cache
+     * rebuilds one reload at a time, so the queue only needs to hold one reload per cache.
+     */
+    @Bean(name = CACHE_REBUILD_EXECUTOR)
+    public ThreadPoolTaskExecutor cacheRebuildExecutor() {
+        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(REBUILD_QUEUE_CAPACITY);
+        executor.setThreadNamePrefix("cache-rebuild-");
+        return executor;
+    }
 
     @Bean
-    public CacheManager cacheManager() {
+    public CacheManager cacheManager(CacheProperties properties, ProductTypeRepository productTypeRepository,
+                                     @Qualifier(CACHE_REBUILD_EXECUTOR) Executor rebuildExecutor) {
+        final Map<String, Function<Object, Object>> loaders = Map.of(
+                PRODUCT_TYPE_CACHE, key -> loadProductTypes(productTypeRepository),
+                TYPE_CACHE, key -> productTypeRepository.findByType((String) key)
+        );
+        final Set<String> names = new TreeSet<>(properties.getCaches().keySet());
+        names.addAll(loaders.keySet());
+
         final SimpleCacheManager cacheManager = new SimpleCacheManager();
-        cacheManager.setCaches(Arrays.asList(
-                new ConcurrentMapCache("productType"),
-                new ConcurrentMapCache("type")
-        ));
+        cacheManager.setCaches(names.stream()
+                .map(name -> createCache(name, properties.getSpec(name), loaders.get(name), rebuildExecutor))
+                .collect(Collectors.toList()));
         return cacheManager;
     }
+
+    @Bean
+    public CacheMeterBinderProvider<ManagedCache> managedCacheMeterBinderProvider() {
+        return ManagedCacheMetrics::new;
+    }
+
+    private static ManagedCache createCache(String name, CacheProperties.Spec spec, Function<Object, Object> loader,
+                                            Executor rebuildExecutor) {
+        final ConcurrentStatsCounter statsCounter = new ConcurrentStatsCounter();
+        return new ManagedCache(name, () -> buildCache(spec, loader, statsCounter), loader, statsCounter, rebuildExecutor);
+    }
+
+    private static Cache<Object, Object> buildCache(CacheProperties.Spec spec, Function<Object, Object> loader,
+                                                    ConcurrentStatsCounter statsCounter) {
+        final Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(spec.getMaximumSize())
+                .expireAfterWrite(spec.getExpireAfterWrite())
+                .recordStats(() -> statsCounter);
+        if (spec.getRefreshAfterWrite() != null && loader != null) {
+            return builder.refreshAfterWrite(spec.getRefreshAfterWrite()).build(loader::apply);
+        }
+        return builder.build();
+    }
+
+    private static List<ProductType> loadProductTypes(ProductTypeRepository productTypeRepository) {
+        final List<ProductType> types = new ArrayList<>();
+        productTypeRepository.findAll().forEach(types::add);
+
+        return types;
+    }
+
 }
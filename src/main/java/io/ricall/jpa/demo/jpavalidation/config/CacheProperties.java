@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Data
+@ConfigurationProperties("jpa-validation.cache")
+public class CacheProperties {
+
+    /**
+     * Cache specifications keyed by cache name, caches without a specification use the defaults.
+     */
+    private Map<String, Spec> caches = new TreeMap<>();
+
+    public Spec getSpec(String name) {
+        return caches.getOrDefault(name, new Spec());
+    }
+
+    @Data
+    public static class Spec {
+        private static final long DEFAULT_MAXIMUM_SIZE = 1000;
+        private static final Duration DEFAULT_EXPIRE_AFTER_WRITE = Duration.ofHours(1);
+
+        /**
+         * Maximum number of entries held by the cache.
+         */
+        private long maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+        /**
+         * Time after which an entry is removed from the cache.
+         */
+        private Duration expireAfterWrite = DEFAULT_EXPIRE_AFTER_WRITE;
+
+        /**
+         * Time after which an entry is reloaded in the background the next time it is read (disabled when not set).
+         */
+        private Duration refreshAfterWrite;
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties("jpa-validation.cluster")
+public class ClusterProperties {
+
+    private static final Duration DEFAULT_POLL_INTERVAL = Duration.ofSeconds(1);
+    private static final Duration DEFAULT_RETENTION = Duration.ofHours(1);
+    private static final Duration DEFAULT_GAP_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * Whether cache invalidations are shared with the other nodes through the cache changelog table.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Delay between polls of the cache changelog, this bounds how long other nodes serve stale entries.
+     */
+    private Duration pollInterval = DEFAULT_POLL_INTERVAL;
+
+    /**
+     * How long changelog entries are kept before they are pruned.
+     */
+    private Duration retention = DEFAULT_RETENTION;
+
+    /**
+     * How long a skipped changelog id is looked up again, a change committed this much later than changes with higher
+     * ids is missed. It should be longer than any transaction that publishes a cache change.
+     */
+    private Duration gapTimeout = DEFAULT_GAP_TIMEOUT;
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.config;
+
+import io.ricall.jpa.demo.jpavalidation.statistics.QueryStatistics;
+import io.ricall.jpa.demo.jpavalidation.statistics.QueryStatisticsDataSourcePostProcessor;
+import io.ricall.jpa.demo.jpavalidation.statistics.QueryStatisticsEndpoint;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Only loaded when {@code jpa-validation.query-statistics.enabled} is set, otherwise the data source is left
+ * unwrapped.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "jpa-validation.query-statistics", name = "enabled")
+public class QueryStatisticsConfiguration {
+
+    @Bean
+    public QueryStatistics queryStatistics(QueryStatisticsProperties properties) {
+        return new QueryStatistics(properties.getCapacity(), properties.getSlowQueryThreshold(), properties.getSlowQueryLogSize());
+    }
+
+    /**
+     * Static for the same reason as {@link MetricsConfiguration#repositoryMetricsPostProcessor}.
+     */
+    @Bean
+    public static QueryStatisticsDataSourcePostProcessor queryStatisticsDataSourcePostProcessor(ObjectProvider<QueryStatistics> statistics) {
+        return new QueryStatisticsDataSourcePostProcessor(statistics);
+    }
+
+    @Bean
+    public QueryStatisticsEndpoint queryStatisticsEndpoint(QueryStatistics statistics, EntityManagerFactory entityManagerFactory,
+                                                           QueryStatisticsProperties properties) {
+        return new QueryStatisticsEndpoint(statistics, entityManagerFactory, properties.getTop());
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties("jpa-validation.query-statistics")
+public class QueryStatisticsProperties {
+
+    private static final int DEFAULT_CAPACITY = 200;
+    private static final int DEFAULT_TOP = 10;
+    private static final int DEFAULT_SLOW_QUERY_LOG_SIZE = 50;
+    private static final Duration DEFAULT_SLOW_QUERY_THRESHOLD = Duration.ofMillis(100);
+
+    /**
+     * Whether SQL statements are measured and reported by the {@code queries} actuator endpoint, this also turns on
+     * Hibernate's statistics.
+     */
+    private boolean enabled;
+
+    /**
+     * Number of distinct normalized statements tracked, the least executed statement is replaced once it is reached.
+     */
+    private int capacity = DEFAULT_CAPACITY;
+
+    /**
+     * Number of statements listed as the slowest.
+     */
+    private int top = DEFAULT_TOP;
+
+    /**
+     * Statements taking at least this long are added to the slow query log.
+     */
+    private Duration slowQueryThreshold = DEFAULT_SLOW_QUERY_THRESHOLD;
+
+    /**
+     * Number of slow queries kept, older ones are overwritten.
+     */
+    private int slowQueryLogSize = DEFAULT_SLOW_QUERY_LOG_SIZE;
+
+}
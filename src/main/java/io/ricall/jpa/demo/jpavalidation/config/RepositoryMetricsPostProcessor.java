@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.ricall.jpa.demo.jpavalidation.timing.Phase;
+import io.ricall.jpa.demo.jpavalidation.timing.ServerTiming;
+import lombok.RequiredArgsConstructor;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.Repository;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every call to a Spring Data repository as {@code repository.invocations}, tagged with the repository bean name,
+ * the method and the exception thrown (if any). The timing advice is added to the repository's own proxy rather than
+ * wrapping it in another one, and the timers of successful calls are looked up once per method. The time is also
+ * recorded as the {@link Phase#DB} phase of the request's {@link ServerTiming}.
+ */
+@RequiredArgsConstructor
+public class RepositoryMetricsPostProcessor implements BeanPostProcessor {
+    public static final String METRIC_NAME = "repository.invocations";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof Repository && bean instanceof Advised && !((Advised) bean).isFrozen()) {
+            ((Advised) bean).addAdvice(0, new TimingInterceptor(beanName, meterRegistry));
+        }
+        return bean;
+    }
+
+    private static final class TimingInterceptor implements MethodInterceptor {
+        private static final String NONE = "none";
+
+        private final String repository;
+        private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+        private final ConcurrentMap<Method, Timer> timers = new ConcurrentHashMap<>();
+        private volatile MeterRegistry meterRegistry;
+
+        private TimingInterceptor(String repository, ObjectProvider<MeterRegistry> meterRegistryProvider) {
+            this.repository = repository;
+            this.meterRegistryProvider = meterRegistryProvider;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            final long start = System.nanoTime();
+            String exception = NONE;
+            // -@cs[IllegalCatch] the exception is only recorded before it is rethrown
+            try {
+                return invocation.proceed();
+            } catch (Throwable e) {
+                exception = e.getClass().getSimpleName();
+                throw e;
+            } finally {
+                record(invocation.getMethod(), exception, System.nanoTime() - start);
+            }
+        }
+
+        private void record(Method method, String exception, long duration) {
+            ServerTiming.record(Phase.DB, duration);
+            final MeterRegistry registry = registry();
+            if (registry != null) {
+                final Timer timer;
+                if (NONE.equals(exception)) {
+                    timer = timers.computeIfAbsent(method, key -> timer(registry, key, NONE));
+                } else {
+                    timer = timer(registry, method, exception);
+                }
+                timer.record(duration, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        /**
+         * Repositories are used while the application starts, calls made before the registry exists are not timed.
+         */
+        private MeterRegistry registry() {
+            if (meterRegistry == null) {
+                meterRegistry = meterRegistryProvider.getIfAvailable();
+            }
+            return meterRegistry;
+        }
+
+        private Timer timer(MeterRegistry registry, Method method, String exception) {
+            return Timer.builder(METRIC_NAME)
+                    .tag("repository", repository)
+                    .tag("method", method.getName())
+                    .tag("exception", exception)
+                    .description("Time taken by repository calls")
+                    .register(registry);
+        }
+    }
+
+}
@@ -23,9 +23,10 @@
 
 package io.ricall.jpa.demo.jpavalidation.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import io.ricall.jpa.demo.jpavalidation.serdes.ProductTypeDeserializer;
 import io.ricall.jpa.demo.jpavalidation.serdes.ProductTypeSerializer;
-import io.ricall.jpa.demo.jpavalidation.service.implementation.DefaultProductTypeService;
+import io.ricall.jpa.demo.jpavalidation.service.ProductTypeRegistry;
 import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -34,10 +35,10 @@ import org.springframework.context.annotation.Configuration;
 public class SerializationConfiguration {
 
     @Bean
-    public Jackson2ObjectMapperBuilderCustomizer customizeJackson(DefaultProductTypeService service) {
+    public Jackson2ObjectMapperBuilderCustomizer customizeJackson(ProductTypeRegistry registry, MeterRegistry meterRegistry) {
         return builder -> builder
                 .serializers(new ProductTypeSerializer())
-                .deserializers(new ProductTypeDeserializer(service));
+                .deserializers(new ProductTypeDeserializer(registry, meterRegistry));
     }
 
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.config;
+
+import io.ricall.jpa.demo.jpavalidation.controller.ServerTimingFilter;
+import io.ricall.jpa.demo.jpavalidation.timing.ServerTiming;
+import io.ricall.jpa.demo.jpavalidation.timing.TimedJsonHttpMessageConverter;
+import io.ricall.jpa.demo.jpavalidation.timing.TimedValidator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.validation.Validator;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Only loaded when {@code jpa-validation.server-timing.enabled} is set, otherwise none of the timed converters,
+ * validators or decorators are installed.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "jpa-validation.server-timing", name = "enabled")
+public class ServerTimingConfiguration implements WebMvcConfigurer {
+
+    private final javax.validation.Validator validator;
+
+    public ServerTimingConfiguration(javax.validation.Validator validator) {
+        this.validator = validator;
+    }
+
+    /**
+     * A bean of its own so it is destroyed, and the timing disabled, when the context closes.
+     */
+    @Bean
+    public ServerTimingFilter serverTimingFilter(ServerTimingProperties properties) {
+        return new ServerTimingFilter(properties);
+    }
+
+    /**
+     * Registered ahead of the other filters so the total covers as much of the request as possible.
+     */
+    @Bean
+    public FilterRegistrationBean<ServerTimingFilter> serverTimingFilterRegistration(ServerTimingFilter filter) {
+        final FilterRegistrationBean<ServerTimingFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    /**
+     * Carries the recording over to the database executor, see {@link DatabaseExecutorConfiguration}.
+     */
+    @Bean
+    public TaskDecorator serverTimingTaskDecorator() {
+        return ServerTiming::propagate;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        for (int index = 0; index < converters.size(); index++) {
+            final HttpMessageConverter<?> converter = converters.get(index);
+            if (converter.getClass() == MappingJackson2HttpMessageConverter.class) {
+                converters.set(index, new TimedJsonHttpMessageConverter(((MappingJackson2HttpMessageConverter) converter).getObjectMapper()));
+            }
+        }
+    }
+
+    @Override
+    public Validator getValidator() {
+        return new TimedValidator(new SpringValidatorAdapter(validator));
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.controller;
+
+import io.ricall.jpa.demo.jpavalidation.model.BindError;
+import org.springframework.util.ObjectUtils;
+import org.springframework.validation.Errors;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.ObjectError;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public final class BindErrors {
+
+    private BindErrors() {
+    }
+
+    public static List<BindError> from(Errors errors) {
+        return errors.getAllErrors().stream()
+                .map(BindErrors::from)
+                .collect(Collectors.toList());
+    }
+
+    public static BindError from(ObjectError error) {
+        if (error instanceof FieldError) {
+            return fromFieldError((FieldError) error);
+        }
+        return BindError.builder()
+                .code("E999")
+                .codeDescription("Object Error")
+                .description(error.toString())
+                .build();
+    }
+
+    private static BindError fromFieldError(FieldError error) {
+        return BindError.builder()
+                .code("E001")
+                .codeDescription("Field Error")
+                .description(String.format("Field error in object '%s' on field '%s' rejected value: %s",
+                        error.getObjectName(),
+                        error.getField(),
+                        ObjectUtils.nullSafeToString(error.getRejectedValue())))
+                .build();
+    }
+
+}
@@ -23,6 +23,8 @@
 
 package io.ricall.jpa.demo.jpavalidation.controller;
 
+import io.ricall.jpa.demo.jpavalidation.cache.CacheInvalidator;
+import io.ricall.jpa.demo.jpavalidation.service.ClusterCacheService;
 import lombok.AllArgsConstructor;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
@@ -31,27 +33,61 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 
+import java.util.List;
+import java.util.function.Consumer;
+
 @Controller
 @AllArgsConstructor
 public class CacheController {
     private static final String RESET_COMMAND = "RESET";
+    private static final String EVICT_COMMAND = "EVICT";
     private static final String UNKNOWN_COMMAND = "UNKNOWN COMMAND";
+    private static final String UNKNOWN_CACHE = "UNKNOWN CACHE";
+    private static final int EVICT_ARGUMENTS = 3;
 
     private final CacheManager cacheManager;
+    private final CacheInvalidator cacheInvalidator;
+    private final ClusterCacheService clusterCacheService;
 
+    /**
+     * Handles the cache commands, the other nodes in the cluster apply the same command on their next poll.
+     *
+     * <ul>
+     *     <li>{@code RESET} reloads every cache</li>
+     *     <li>{@code RESET <cache>} reloads a single cache</li>
+     *     <li>{@code EVICT <cache> <key>} removes a single entry from a cache</li>
+     * </ul>
+     *
+     * @param command the command to execute
+     * @return the executed command, or a bad request when the command isn't recognised
+     */
     @PostMapping("/cache")
     public ResponseEntity<String> clearCache(@RequestBody String command) {
-        if (RESET_COMMAND.equals(command)) {
-            resetCache();
-            return ResponseEntity.ok(RESET_COMMAND);
+        final List<String> arguments = List.of(command.trim().split("\\s+", EVICT_ARGUMENTS));
+        final String name = arguments.get(0);
+
+        ResponseEntity<String> response = ResponseEntity.badRequest().body(UNKNOWN_COMMAND);
+        if (RESET_COMMAND.equals(name) && arguments.size() == 1) {
+            cacheInvalidator.resetAll();
+            clusterCacheService.publish(null, null);
+            response = ResponseEntity.ok(RESET_COMMAND);
+        } else if (RESET_COMMAND.equals(name) && arguments.size() == 2) {
+            response = withCache(arguments.get(1), null, RESET_COMMAND, cacheInvalidator::reset);
+        } else if (EVICT_COMMAND.equals(name) && arguments.size() == EVICT_ARGUMENTS) {
+            final String key = arguments.get(2);
+            response = withCache(arguments.get(1), key, EVICT_COMMAND, cache -> cacheInvalidator.evict(cache, key));
         }
-        return ResponseEntity.badRequest().body(UNKNOWN_COMMAND);
+        return response;
     }
 
-    private void resetCache() {
-        cacheManager.getCacheNames().stream()
-                .map(cacheManager::getCache)
-                .forEach(Cache::clear);
+    private ResponseEntity<String> withCache(String cacheName, String key, String command, Consumer<Cache> action) {
+        final Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null) {
+            return ResponseEntity.badRequest().body(UNKNOWN_CACHE);
+        }
+        action.accept(cache);
+        clusterCacheService.publish(cacheName, key);
+        return ResponseEntity.ok(command);
     }
 
 }
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.ricall.jpa.demo.jpavalidation.concurrent.ConcurrencyLimiter;
+import io.ricall.jpa.demo.jpavalidation.concurrent.ConcurrencyLimiter.Permit;
+import io.ricall.jpa.demo.jpavalidation.concurrent.VegasLimit;
+import io.ricall.jpa.demo.jpavalidation.config.ConcurrencyLimitProperties;
+import io.ricall.jpa.demo.jpavalidation.config.DatabaseExecutorProperties;
+import io.ricall.jpa.demo.jpavalidation.model.BindError;
+import io.ricall.jpa.demo.jpavalidation.model.BindErrorMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Adaptive concurrency limit for the {@link ProductController} routes, reads and writes are limited separately so a
+ * feed load of writes can't starve the reads ({@code GET}, {@code HEAD} and {@code OPTIONS} count as reads). Async
+ * requests hold their permit until the async dispatch completes. Rejected requests get the same {@code Retry-After} as
+ * requests rejected by the database executor.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "jpa-validation.concurrency-limit", name = "enabled", matchIfMissing = true)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter implements MeterBinder {
+    private static final String PERMIT = ConcurrencyLimitFilter.class.getName() + ".PERMIT";
+    private static final List<String> PRODUCT_ROUTES = List.of("/product", "/product/*", "/products", "/products/search");
+    private static final Set<String> READ_METHODS = Set.of(HttpMethod.GET.name(), HttpMethod.HEAD.name(), HttpMethod.OPTIONS.name());
+
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+    private final ObjectMapper objectMapper;
+    private final DatabaseExecutorProperties databaseExecutorProperties;
+    private final ConcurrencyLimiter reads;
+    private final ConcurrencyLimiter writes;
+
+    public ConcurrencyLimitFilter(ObjectMapper objectMapper, ConcurrencyLimitProperties properties,
+                                  DatabaseExecutorProperties databaseExecutorProperties) {
+        this.objectMapper = objectMapper;
+        this.databaseExecutorProperties = databaseExecutorProperties;
+        this.reads = limiter("read", properties.getRead());
+        this.writes = limiter("write", properties.getWrite());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        reads.bindTo(registry);
+        writes.bindTo(registry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        final String path = urlPathHelper.getPathWithinApplication(request);
+        return PRODUCT_ROUTES.stream().noneMatch(route -> pathMatcher.match(route, path));
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            filterAsyncDispatch(request, response, filterChain);
+        } else {
+            final Optional<Permit> permit = limiterFor(request).tryAcquire();
+            if (permit.isPresent()) {
+                filterWithPermit(request, response, filterChain, permit.get());
+            } else {
+                reject(request, response);
+            }
+        }
+    }
+
+    private void filterWithPermit(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain,
+                                  Permit permit) throws ServletException, IOException {
+        request.setAttribute(PERMIT, permit);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // releases the permit of async requests that time out or fail without being dispatched again
+                request.getAsyncContext().addListener(new PermitListener(permit));
+            } else {
+                release(permit, response);
+            }
+        }
+    }
+
+    private void filterAsyncDispatch(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            final Object permit = request.getAttribute(PERMIT);
+            if (permit instanceof Permit && !request.isAsyncStarted()) {
+                release((Permit) permit, response);
+            }
+        }
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug(" --> Concurrency limit reached, rejecting {} {}", request.getMethod(), request.getRequestURI());
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        final long retryAfter = Math.max(1, databaseExecutorProperties.getRetryAfter().toSeconds());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), BindErrorMessage.builder()
+                .description("Service unavailable")
+                .errors(List.of(BindError.builder()
+                        .code("E004")
+                        .codeDescription("Concurrency Limit")
+                        .description("Too many concurrent requests")
+                        .build()))
+                .build());
+    }
+
+    private ConcurrencyLimiter limiterFor(HttpServletRequest request) {
+        if (READ_METHODS.contains(request.getMethod())) {
+            return reads;
+        }
+        return writes;
+    }
+
+    private static void release(Permit permit, HttpServletResponse response) {
+        if (response.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+            permit.drop();
+        } else {
+            permit.release();
+        }
+    }
+
+    private static ConcurrencyLimiter limiter(String name, ConcurrencyLimitProperties.Group group) {
+        return new ConcurrencyLimiter(name, new VegasLimit(group.getInitialLimit(), group.getMinLimit(), group.getMaxLimit()));
+    }
+
+    private static final class PermitListener implements AsyncListener {
+        private final Permit permit;
+
+        private PermitListener(Permit permit) {
+            this.permit = permit;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release(permit, (HttpServletResponse) event.getSuppliedResponse());
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            permit.drop();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            permit.drop();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // the permit is still held by the restarted request
+        }
+    }
+
+}
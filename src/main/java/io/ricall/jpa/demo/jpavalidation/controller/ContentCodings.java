@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.controller;
+
+import java.util.Locale;
+
+/**
+ * Content coding negotiation from an {@code Accept-Encoding} header (RFC 7231 section 5.3.4).
+ */
+public final class ContentCodings {
+    public static final String GZIP = "gzip";
+
+    private static final String ANY = "*";
+    private static final String QUALITY = "q=";
+
+    private ContentCodings() {
+    }
+
+    /**
+     * @param acceptEncoding the header value, or {@code null} when it wasn't sent
+     * @param coding the content coding to check
+     * @return whether the coding is listed (or matched by {@code *}) with a non zero quality
+     */
+    public static boolean accepts(String acceptEncoding, String coding) {
+        boolean listed = false;
+        boolean accepted = false;
+        boolean anyAccepted = false;
+        if (acceptEncoding != null) {
+            for (String token : acceptEncoding.split(",")) {
+                final String[] parts = token.split(";");
+                final String name = parts[0].trim();
+                if (name.equalsIgnoreCase(coding)) {
+                    listed = true;
+                    accepted = quality(parts) > 0;
+                } else if (ANY.equals(name)) {
+                    anyAccepted = quality(parts) > 0;
+                }
+            }
+        }
+        return accepted || !listed && anyAccepted;
+    }
+
+    /**
+     * @return the {@code q} parameter, 1 when it is missing and 0 when it can't be read
+     */
+    private static double quality(String[] parts) {
+        double quality = 1;
+        for (int index = 1; index < parts.length; index++) {
+            final String parameter = parts[index].trim().toLowerCase(Locale.ROOT);
+            if (parameter.startsWith(QUALITY)) {
+                try {
+                    quality = Double.parseDouble(parameter.substring(QUALITY.length()).trim());
+                } catch (NumberFormatException ex) {
+                    quality = 0;
+                }
+            }
+        }
+        return quality;
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.ricall.jpa.demo.jpavalidation.entity.ProductType;
+import io.ricall.jpa.demo.jpavalidation.model.EncodedBody;
+import io.ricall.jpa.demo.jpavalidation.model.ReferenceData;
+import io.ricall.jpa.demo.jpavalidation.service.ProductTypeRegistry;
+import io.ricall.jpa.demo.jpavalidation.service.ProductTypesRefreshedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Holds the {@code /productTypes} response already serialized and gzipped, it is rebuilt whenever the
+ * {@link ProductTypeRegistry} is refreshed.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EncodedProductTypes {
+
+    private final ProductTypeRegistry registry;
+    private final ObjectMapper objectMapper;
+    private final AtomicReference<EncodedBody> encoded = new AtomicReference<>();
+
+    public EncodedBody get() {
+        if (encoded.get() == null) {
+            encoded.compareAndSet(null, encode(registry.getProductTypes()));
+        }
+        return encoded.get();
+    }
+
+    @EventListener
+    public void onRefresh(ProductTypesRefreshedEvent event) {
+        encoded.set(encode(event.getProductTypes()));
+    }
+
+    private EncodedBody encode(List<ProductType> productTypes) {
+        final List<ReferenceData> referenceData = productTypes.stream()
+                .map(ReferenceData::new)
+                .collect(Collectors.toList());
+        try {
+            final byte[] json = objectMapper.writeValueAsBytes(referenceData);
+            final EncodedBody body = EncodedBody.builder()
+                    .json(json)
+                    .gzip(gzip(json))
+                    .hash(DigestUtils.md5DigestAsHex(json))
+                    .build();
+            log.debug(" --> Encoded {} product types ({} bytes, {} gzipped)", referenceData.size(), json.length, body.getGzip().length);
+            return body;
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length);
+        try (GZIPOutputStream output = new GZIPOutputStream(bytes)) {
+            output.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+}
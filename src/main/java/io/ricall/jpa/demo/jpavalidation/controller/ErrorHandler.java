@@ -23,57 +23,75 @@
 
 package io.ricall.jpa.demo.jpavalidation.controller;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.ricall.jpa.demo.jpavalidation.config.DatabaseExecutorProperties;
 import io.ricall.jpa.demo.jpavalidation.model.BindError;
 import io.ricall.jpa.demo.jpavalidation.model.BindErrorMessage;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.util.ObjectUtils;
 import org.springframework.validation.BindException;
-import org.springframework.validation.FieldError;
-import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 @Slf4j
 @ControllerAdvice
+@RequiredArgsConstructor
 public class ErrorHandler {
+    public static final String VALIDATION_FAILURES = "validation.failures";
+
+    private final DatabaseExecutorProperties databaseExecutorProperties;
+    private final MeterRegistry meterRegistry;
 
     @ExceptionHandler(value = BindException.class)
     public ResponseEntity<BindErrorMessage> handleBindException(BindException bindException) {
+        final List<BindError> errors = BindErrors.from(bindException);
+        errors.forEach(error -> meterRegistry.counter(VALIDATION_FAILURES, "code", error.getCode()).increment());
         return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                 .body(BindErrorMessage.builder()
                         .description("Invalid request")
-                        .errors(bindException.getAllErrors().stream()
-                                .map(this::convertObjectError)
-                                .collect(Collectors.toList())
-                        )
+                        .errors(errors)
                         .build());
 
     }
 
-    private BindError convertObjectError(ObjectError error) {
-        if (error instanceof FieldError) {
-            return convertFieldError((FieldError) error);
-        }
-        return BindError.builder()
-                .code("E999")
-                .codeDescription("Object Error")
-                .description(error.toString())
-                .build();
+    @ExceptionHandler(value = OptimisticLockingFailureException.class)
+    public ResponseEntity<BindErrorMessage> handleOptimisticLockingFailure(OptimisticLockingFailureException exception) {
+        log.debug(" --> Rejected stale update: {}", exception.getMessage());
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                .body(BindErrorMessage.builder()
+                        .description("Precondition failed")
+                        .errors(List.of(BindError.builder()
+                                .code("E002")
+                                .codeDescription("Version Conflict")
+                                .description(exception.getMessage())
+                                .build()))
+                        .build());
     }
 
-    private BindError convertFieldError(FieldError error) {
-        return BindError.builder()
-                .code("E001")
-                .codeDescription("Field Error")
-                .description(String.format("Field error in object '%s' on field '%s' rejected value: %s",
-                        error.getObjectName(),
-                        error.getField(),
-                        ObjectUtils.nullSafeToString(error.getRejectedValue())))
-                .build();
+    /**
+     * The database executor is saturated, the client is asked to come back later rather than the request being queued.
+     */
+    @ExceptionHandler(value = RejectedExecutionException.class)
+    public ResponseEntity<BindErrorMessage> handleRejectedExecution(RejectedExecutionException exception) {
+        log.debug(" --> Rejected request: {}", exception.getMessage());
+        final long retryAfter = Math.max(1, databaseExecutorProperties.getRetryAfter().toSeconds());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+                .body(BindErrorMessage.builder()
+                        .description("Service unavailable")
+                        .errors(List.of(BindError.builder()
+                                .code("E003")
+                                .codeDescription("Database Busy")
+                                .description("Too many requests are waiting for the database")
+                                .build()))
+                        .build());
     }
 
 }
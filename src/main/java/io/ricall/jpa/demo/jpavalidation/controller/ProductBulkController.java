@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.ricall.jpa.demo.jpavalidation.config.BatchProperties;
+import io.ricall.jpa.demo.jpavalidation.entity.Product;
+import io.ricall.jpa.demo.jpavalidation.model.BatchItemResult;
+import io.ricall.jpa.demo.jpavalidation.model.BatchResult;
+import io.ricall.jpa.demo.jpavalidation.model.BindError;
+import io.ricall.jpa.demo.jpavalidation.service.ProductService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.ObjectError;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.Validator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static io.ricall.jpa.demo.jpavalidation.controller.ContentCodings.GZIP;
+
+@Controller
+public class ProductBulkController {
+    private static final String OBJECT_NAME = "product";
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+    private static final char LINE_SEPARATOR = '\n';
+    private static final int GZIP_BUFFER_SIZE = 8192;
+
+    private final ProductService service;
+    private final SpringValidatorAdapter validator;
+    private final BatchProperties batchProperties;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader productReader;
+    private final ObjectWriter resultWriter;
+    private final ObjectWriter productWriter;
+
+    public ProductBulkController(ProductService service, Validator validator, BatchProperties batchProperties, ObjectMapper objectMapper) {
+        this.service = service;
+        this.validator = new SpringValidatorAdapter(validator);
+        this.batchProperties = batchProperties;
+        this.objectMapper = objectMapper;
+        this.productReader = objectMapper.readerFor(Product.class);
+        this.resultWriter = objectMapper.writerFor(BatchItemResult.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.productWriter = objectMapper.writerFor(Product.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @PostMapping("/products/batch")
+    public ResponseEntity<BatchResult> addProducts(@RequestBody List<Product> products) {
+        final PendingProducts pending = new PendingProducts();
+        products.forEach(product -> pending.add(product, validate(product)));
+        final List<BatchItemResult> results = save(pending);
+
+        return ResponseEntity.ok(BatchResult.builder()
+                .saved(pending.getSaved())
+                .failed(pending.getFailed())
+                .results(results)
+                .build());
+    }
+
+    @PostMapping(value = "/products/import", consumes = NDJSON_VALUE)
+    public void importProducts(InputStream body, HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON_VALUE);
+        final int chunkSize = batchProperties.getChunkSize();
+        try (MappingIterator<Product> products = productReader.readValues(body);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+
+            final PendingProducts pending = new PendingProducts();
+            boolean readable = true;
+            while (readable) {
+                readable = readNext(products, pending);
+                if (!readable || pending.size() >= chunkSize) {
+                    write(generator, save(pending));
+                }
+            }
+        }
+    }
+
+    @GetMapping("/products/export")
+    public void exportProducts(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                               HttpServletResponse response) throws IOException {
+        final boolean compressed = ContentCodings.accepts(acceptEncoding, GZIP);
+        response.setContentType(NDJSON_VALUE);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (compressed) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        try (OutputStream output = open(response.getOutputStream(), compressed);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+            service.exportAll(product -> writeLine(generator, productWriter, product));
+        }
+    }
+
+    private static OutputStream open(OutputStream output, boolean compressed) throws IOException {
+        if (compressed) {
+            return new GZIPOutputStream(output, GZIP_BUFFER_SIZE);
+        }
+        return output;
+    }
+
+    private static void writeLine(JsonGenerator generator, ObjectWriter writer, Object value) {
+        try {
+            writer.writeValue(generator, value);
+            generator.writeRaw(LINE_SEPARATOR);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private boolean readNext(MappingIterator<Product> products, PendingProducts pending) throws IOException {
+        try {
+            final boolean hasNext = products.hasNextValue();
+            if (hasNext) {
+                final Product product = products.nextValue();
+                pending.add(product, validate(product));
+            }
+            return hasNext;
+        } catch (JsonMappingException ex) {
+            pending.add(null, toErrors(ex));
+            return true;
+        } catch (JsonParseException ex) {
+            pending.add(null, toErrors(ex));
+            return false;
+        }
+    }
+
+    private List<BindError> validate(Product product) {
+        final Errors result = new BeanPropertyBindingResult(product, OBJECT_NAME);
+        validator.validate(product, result);
+
+        return BindErrors.from(result);
+    }
+
+    private static List<BindError> toErrors(JsonProcessingException exception) {
+        return List.of(BindErrors.from(new ObjectError(OBJECT_NAME, exception.getOriginalMessage())));
+    }
+
+    private List<BatchItemResult> save(PendingProducts pending) {
+        service.saveAll(pending.getValid());
+
+        final List<BatchItemResult> results = pending.toResults();
+        pending.reset();
+
+        return results;
+    }
+
+    private void write(JsonGenerator generator, List<BatchItemResult> results) throws IOException {
+        results.forEach(result -> writeLine(generator, resultWriter, result));
+        generator.flush();
+    }
+
+    private static final class PendingProducts {
+        private final List<Product> products = new ArrayList<>();
+        private final List<List<BindError>> errors = new ArrayList<>();
+        private final List<Product> valid = new ArrayList<>();
+        private int firstIndex;
+        private int failed;
+
+        void add(Product product, List<BindError> productErrors) {
+            products.add(product);
+            errors.add(productErrors);
+            if (productErrors.isEmpty()) {
+                valid.add(product);
+            } else {
+                failed++;
+            }
+        }
+
+        int size() {
+            return products.size();
+        }
+
+        List<Product> getValid() {
+            return valid;
+        }
+
+        int getSaved() {
+            return firstIndex + products.size() - failed;
+        }
+
+        int getFailed() {
+            return failed;
+        }
+
+        List<BatchItemResult> toResults() {
+            final List<BatchItemResult> results = new ArrayList<>(products.size());
+            for (int offset = 0; offset < products.size(); offset++) {
+                results.add(toResult(firstIndex + offset, products.get(offset), errors.get(offset)));
+            }
+            return results;
+        }
+
+        void reset() {
+            firstIndex += products.size();
+            products.clear();
+            errors.clear();
+            valid.clear();
+        }
+
+        private static BatchItemResult toResult(int index, Product product, List<BindError> productErrors) {
+            final BatchItemResult.BatchItemResultBuilder result = BatchItemResult.builder().index(index);
+            if (productErrors.isEmpty()) {
+                result.id(product.getId());
+            } else {
+                result.errors(productErrors);
+            }
+            return result.build();
+        }
+
+    }
+
+}
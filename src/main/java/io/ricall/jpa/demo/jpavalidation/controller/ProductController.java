@@ -23,38 +23,115 @@
 
 package io.ricall.jpa.demo.jpavalidation.controller;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.ricall.jpa.demo.jpavalidation.config.LookupProperties;
 import io.ricall.jpa.demo.jpavalidation.entity.Product;
+import io.ricall.jpa.demo.jpavalidation.model.ProductLookup;
+import io.ricall.jpa.demo.jpavalidation.model.ProductPage;
+import io.ricall.jpa.demo.jpavalidation.model.ProductPatch;
+import io.ricall.jpa.demo.jpavalidation.model.ProductSearch;
 import io.ricall.jpa.demo.jpavalidation.service.ProductService;
-import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.validation.BindException;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.MapBindingResult;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import javax.validation.Valid;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import static io.ricall.jpa.demo.jpavalidation.config.DatabaseExecutorConfiguration.DATABASE_EXECUTOR;
+
+/**
+ * Product endpoints are asynchronous, the service calls run on the bounded database executor and the container thread
+ * is released straight away. A full executor rejects the request, which {@link ErrorHandler} turns into a 503.
+ */
 @Controller
-@AllArgsConstructor
 public class ProductController {
+    public static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+    private static final String LOOKUP = "lookup";
 
     private final ProductService service;
+    private final ProductPatchReader patchReader;
+    private final LookupProperties lookupProperties;
+    private final Executor databaseExecutor;
 
+    public ProductController(ProductService service, ProductPatchReader patchReader, LookupProperties lookupProperties,
+                             @Qualifier(DATABASE_EXECUTOR) Executor databaseExecutor) {
+        this.service = service;
+        this.patchReader = patchReader;
+        this.lookupProperties = lookupProperties;
+        this.databaseExecutor = databaseExecutor;
+    }
+
+    /**
+     * Returns the product with its version as the entity tag, Spring answers a matching {@code If-None-Match} with a
+     * 304 before the product is serialized.
+     */
     @GetMapping("/product/{id}")
-    public ResponseEntity<Product> findById(@PathVariable("id") Long id) {
-        return ResponseEntity.of(service.findById(id));
+    public CompletableFuture<ResponseEntity<Product>> findById(@PathVariable("id") Long id) {
+        return onDatabase(() -> withEntityTag(service.findById(id)));
+    }
+
+    /**
+     * More than {@code jpa-validation.lookup.max-ids} ids are rejected as a field error on {@code ids}, the rejected value
+     * is the number of ids requested.
+     */
+    @GetMapping("/products")
+    public CompletableFuture<ResponseEntity<List<ProductLookup>>> findAllById(@RequestParam("ids") List<Long> ids) throws BindException {
+        if (ids.size() > lookupProperties.getMaxIds()) {
+            final BindingResult errors = new MapBindingResult(Map.of(), LOOKUP);
+            errors.addError(new FieldError(LOOKUP, "ids", ids.size(), false, null, null,
+                    String.format("At most %d ids can be looked up", lookupProperties.getMaxIds())));
+            throw new BindException(errors);
+        }
+        return onDatabase(() -> ResponseEntity.ok(service.findAllById(ids)));
+    }
+
+    @GetMapping("/products/search")
+    public CompletableFuture<ResponseEntity<ProductPage>> search(ProductSearch search) {
+        return onDatabase(() -> ResponseEntity.ok(service.search(search)));
     }
 
     @PostMapping("/product")
-    public ResponseEntity<Product> addProduct(@Valid @RequestBody Product product) {
-        return ResponseEntity.ok(service.save(product));
+    public CompletableFuture<ResponseEntity<Product>> addProduct(@Valid @RequestBody Product product) {
+        return onDatabase(() -> ResponseEntity.ok(service.save(product)));
+    }
+
+    @PatchMapping(value = "/product/{id}", consumes = {MediaType.APPLICATION_JSON_VALUE, MERGE_PATCH_JSON_VALUE})
+    public CompletableFuture<ResponseEntity<Product>> updateProduct(@RequestBody ObjectNode patch, @PathVariable("id") Long id,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch)
+            throws BindException {
+        final Long version = EntityTags.parseVersion(ifMatch);
+        final ProductPatch productPatch = patchReader.read(patch);
+        return onDatabase(() -> withEntityTag(service.update(id, productPatch.getChanges(), productPatch.getFields(), version)));
+    }
+
+    private <T> CompletableFuture<T> onDatabase(Supplier<T> work) {
+        return CompletableFuture.supplyAsync(work, databaseExecutor);
     }
 
-    @PatchMapping("/product/{id}")
-    public ResponseEntity<Product> updateProduct(@Valid @RequestBody Product product, @PathVariable("id") Long id) {
-        return ResponseEntity.of(service.update(id, product));
+    private static ResponseEntity<Product> withEntityTag(Optional<Product> product) {
+        return product
+                .map(found -> ResponseEntity.ok().eTag(EntityTags.of(found.getVersion())).body(found))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
 }
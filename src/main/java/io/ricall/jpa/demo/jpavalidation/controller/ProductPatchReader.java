@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.ricall.jpa.demo.jpavalidation.entity.Product;
+import io.ricall.jpa.demo.jpavalidation.model.ProductPatch;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindException;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.FieldError;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Reads a JSON merge patch (RFC 7386) for a product. Only the fields present in the patch are converted and validated,
+ * a {@code null} value clears the field, read only fields are ignored and unknown fields are rejected.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductPatchReader {
+    private static final String OBJECT_NAME = "product";
+    private static final Set<String> READ_ONLY_FIELDS = Set.of("id", "version");
+    private static final Set<String> FIELDS = Set.of("name", "type", "category", "subCategory", "roleStart", "roleEnd");
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    public ProductPatch read(ObjectNode patch) throws BindException {
+        final Product changes = new Product();
+        final BindingResult errors = new BeanPropertyBindingResult(changes, OBJECT_NAME);
+        final Set<String> fields = new LinkedHashSet<>();
+
+        patch.fields().forEachRemaining(field -> {
+            final String name = field.getKey();
+            if (FIELDS.contains(name)) {
+                readField(changes, name, field.getValue(), errors);
+                fields.add(name);
+            } else if (!READ_ONLY_FIELDS.contains(name)) {
+                errors.addError(fieldError(name, field.getValue(), "Unknown field"));
+            }
+        });
+        if (errors.hasErrors()) {
+            throw new BindException(errors);
+        }
+        return ProductPatch.builder()
+                .changes(changes)
+                .fields(fields)
+                .build();
+    }
+
+    private void readField(Product changes, String name, JsonNode value, BindingResult errors) {
+        final ObjectNode field = objectMapper.createObjectNode();
+        field.set(name, value);
+        try {
+            objectMapper.readerForUpdating(changes).readValue(field);
+            for (final ConstraintViolation<Product> violation : validator.validateProperty(changes, name)) {
+                errors.addError(fieldError(name, violation.getInvalidValue(), violation.getMessage()));
+            }
+        } catch (JsonProcessingException e) {
+            errors.addError(fieldError(name, value, e.getOriginalMessage()));
+        }
+    }
+
+    private static FieldError fieldError(String field, Object rejectedValue, String message) {
+        return new FieldError(OBJECT_NAME, field, rejectedValue, false, null, null, message);
+    }
+
+}
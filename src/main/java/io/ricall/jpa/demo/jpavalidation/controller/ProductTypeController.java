@@ -23,28 +23,45 @@
 
 package io.ricall.jpa.demo.jpavalidation.controller;
 
-import io.ricall.jpa.demo.jpavalidation.model.ReferenceData;
-import io.ricall.jpa.demo.jpavalidation.service.ProductTypeService;
+import io.ricall.jpa.demo.jpavalidation.config.ReferenceDataProperties;
+import io.ricall.jpa.demo.jpavalidation.model.EncodedBody;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 
-import java.util.List;
-import java.util.stream.Collectors;
+import static io.ricall.jpa.demo.jpavalidation.controller.ContentCodings.GZIP;
 
 @Controller
 @RequiredArgsConstructor
 public class ProductTypeController {
+    private final EncodedProductTypes productTypes;
+    private final ReferenceDataProperties referenceDataProperties;
 
-    private final ProductTypeService service;
+    /**
+     * Serves the pre-encoded product types, Spring answers a matching {@code If-None-Match} with a 304.
+     */
+    @GetMapping(value = "/productTypes", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> productTypes(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        final EncodedBody body = productTypes.get();
+        final ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.maxAge(referenceDataProperties.getMaxAge()).cachePublic())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
 
-    @GetMapping("/productTypes")
-    public ResponseEntity<List<ReferenceData>> productTypes() {
-        return ResponseEntity.ok(service.getProductTypes().stream()
-            .map(ReferenceData::new)
-            .collect(Collectors.toList())
-        );
+        if (ContentCodings.accepts(acceptEncoding, GZIP)) {
+            return response
+                    .eTag(EntityTags.of(body.getHash() + "-" + GZIP))
+                    .header(HttpHeaders.CONTENT_ENCODING, GZIP)
+                    .body(body.getGzip());
+        }
+        return response
+                .eTag(EntityTags.of(body.getHash()))
+                .body(body.getJson());
     }
 
 }
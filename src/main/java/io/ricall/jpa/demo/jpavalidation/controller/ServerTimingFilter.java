@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.controller;
+
+import io.ricall.jpa.demo.jpavalidation.config.ServerTimingProperties;
+import io.ricall.jpa.demo.jpavalidation.timing.ServerTiming;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Records the phases of each request and adds them as a {@code Server-Timing} header. The response body is buffered
+ * so the header can still be added once the total is known, the streaming import and export are left alone. The
+ * recording lives in a request attribute so async requests carry on with it when they are dispatched again.
+ */
+@Slf4j
+public class ServerTimingFilter extends OncePerRequestFilter {
+    public static final String SERVER_TIMING = "Server-Timing";
+
+    private static final String TIMING = ServerTimingFilter.class.getName() + ".TIMING";
+    private static final Set<String> STREAMING = Set.of("/products/import", "/products/export");
+
+    private final ServerTimingProperties properties;
+    private final AtomicBoolean enabled = new AtomicBoolean(true);
+
+    public ServerTimingFilter(ServerTimingProperties properties) {
+        this.properties = properties;
+        ServerTiming.enable();
+    }
+
+    /**
+     * Called when the context closes (and possibly again by the servlet container), the timing is only disabled once.
+     */
+    @Override
+    public void destroy() {
+        if (enabled.compareAndSet(true, false)) {
+            ServerTiming.disable();
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return STREAMING.contains(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        final ServerTiming timing = timingFor(request);
+        final ContentCachingResponseWrapper wrapper = wrap(response);
+        final ServerTiming previous = ServerTiming.bind(timing);
+        try {
+            filterChain.doFilter(request, wrapper);
+        } finally {
+            ServerTiming.restore(previous);
+            if (!request.isAsyncStarted()) {
+                complete(request, wrapper, timing);
+            }
+        }
+    }
+
+    private void complete(HttpServletRequest request, ContentCachingResponseWrapper response, ServerTiming timing) throws IOException {
+        response.setHeader(SERVER_TIMING, timing.toHeader());
+        if (properties.getLogSampleRate() > ThreadLocalRandom.current().nextDouble()) {
+            log.info(" --> server-timing method={} uri={} status={} {}", request.getMethod(), request.getRequestURI(),
+                    response.getStatus(), timing.toLogFields());
+        }
+        response.copyBodyToResponse();
+    }
+
+    private static ServerTiming timingFor(HttpServletRequest request) {
+        ServerTiming timing = (ServerTiming) request.getAttribute(TIMING);
+        if (timing == null) {
+            timing = new ServerTiming();
+            request.setAttribute(TIMING, timing);
+        }
+        return timing;
+    }
+
+    private static ContentCachingResponseWrapper wrap(HttpServletResponse response) {
+        ContentCachingResponseWrapper wrapper = WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+        if (wrapper == null) {
+            wrapper = new ContentCachingResponseWrapper(response);
+        }
+        return wrapper;
+    }
+
+}
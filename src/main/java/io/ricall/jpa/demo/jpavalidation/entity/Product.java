@@ -23,10 +23,16 @@
 
 package io.ricall.jpa.demo.jpavalidation.entity;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 import org.springframework.data.annotation.AccessType;
 import org.springframework.format.annotation.DateTimeFormat;
 
@@ -35,6 +41,7 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.ManyToOne;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
 
 import java.time.LocalDateTime;
@@ -49,7 +56,9 @@ import static org.springframework.data.annotation.AccessType.Type.FIELD;
 @AllArgsConstructor
 public class Product {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "productIdGenerator")
+    @GenericGenerator(name = "productIdGenerator", strategy = PooledSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "PRODUCT_SEQ"))
     private long id;
 
     @NotNull
@@ -57,6 +66,7 @@ public class Product {
 
     @NotNull
     @ManyToOne
+    @Fetch(FetchMode.SELECT)
     private ProductType type;
 
     @NotNull
@@ -72,14 +82,7 @@ public class Product {
     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
     private LocalDateTime roleEnd;
 
-    public Product merge(Product product) {
-        name = product.name;
-        type = product.type;
-        category = product.category;
-        subCategory = product.subCategory;
-        roleStart = product.roleStart;
-        roleEnd = product.roleEnd;
-
-        return this;
-    }
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
 }
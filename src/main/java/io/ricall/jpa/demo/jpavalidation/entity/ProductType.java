@@ -27,14 +27,20 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 import org.springframework.data.annotation.AccessType;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.validation.constraints.NotNull;
 
+import static org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE;
 import static org.springframework.data.annotation.AccessType.Type.FIELD;
 
 @Data
@@ -43,10 +49,16 @@ import static org.springframework.data.annotation.AccessType.Type.FIELD;
 @AccessType(FIELD)
 @NoArgsConstructor
 @AllArgsConstructor
+@Cacheable
+@Cache(usage = READ_WRITE, region = ProductType.CACHE_REGION)
 public class ProductType implements ReferenceType {
+    public static final String CACHE_REGION = "entity.productType";
+    public static final String QUERY_CACHE_REGION = "query.productType";
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "productTypeIdGenerator")
+    @GenericGenerator(name = "productTypeIdGenerator", strategy = PooledSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "PRODUCT_TYPE_SEQ"))
     private long id;
 
     @NotNull
@@ -24,7 +24,24 @@
 package io.ricall.jpa.demo.jpavalidation.repository;
 
 import io.ricall.jpa.demo.jpavalidation.entity.Product;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 
-public interface ProductRepository extends CrudRepository<Product, Long> {
+import javax.persistence.QueryHint;
+
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+public interface ProductRepository extends CrudRepository<Product, Long>, ProductSearchRepository, ProductUpdateRepository {
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select p from Product p join fetch p.type order by p.id")
+    Stream<Product> streamAll();
+
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.repository;
+
+import io.ricall.jpa.demo.jpavalidation.entity.Product;
+import io.ricall.jpa.demo.jpavalidation.entity.ProductType;
+import io.ricall.jpa.demo.jpavalidation.model.ProductSearch;
+import lombok.RequiredArgsConstructor;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class ProductSearchRepositoryImpl implements ProductSearchRepository {
+    private static final String ID = "id";
+    private static final String TYPE = "type";
+    private static final String ROLE_START = "roleStart";
+
+    private final EntityManager entityManager;
+
+    @Override
+    public List<Product> search(ProductSearch search, ProductType type, int limit) {
+        final CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        final CriteriaQuery<Product> query = builder.createQuery(Product.class);
+        final Root<Product> product = query.from(Product.class);
+        product.fetch(TYPE);
+
+        final List<Predicate> predicates = new ArrayList<>();
+        if (type != null) {
+            predicates.add(builder.equal(product.get(TYPE), type));
+        }
+        if (search.getCategory() != null) {
+            predicates.add(builder.equal(product.get("category"), search.getCategory()));
+        }
+        if (search.getSubCategory() != null) {
+            predicates.add(builder.equal(product.get("subCategory"), search.getSubCategory()));
+        }
+        if (search.getRoleStartFrom() != null) {
+            predicates.add(builder.greaterThanOrEqualTo(product.<LocalDateTime>get(ROLE_START), search.getRoleStartFrom()));
+        }
+        if (search.getRoleStartTo() != null) {
+            predicates.add(builder.lessThan(product.<LocalDateTime>get(ROLE_START), search.getRoleStartTo()));
+        }
+        if (search.getAfter() != null) {
+            predicates.add(builder.greaterThan(product.<Long>get(ID), search.getAfter()));
+        }
+        query.select(product)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(builder.asc(product.get(ID)));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+}
@@ -25,10 +25,21 @@ package io.ricall.jpa.demo.jpavalidation.repository;
 
 import io.ricall.jpa.demo.jpavalidation.entity.ProductType;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 
+import javax.persistence.QueryHint;
+
+import static io.ricall.jpa.demo.jpavalidation.entity.ProductType.QUERY_CACHE_REGION;
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+
 public interface ProductTypeRepository extends CrudRepository<ProductType, Long> {
 
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = QUERY_CACHE_REGION)
+    })
     @Query("from ProductType pt where pt.type=:type")
     ProductType findByType(String type);
 
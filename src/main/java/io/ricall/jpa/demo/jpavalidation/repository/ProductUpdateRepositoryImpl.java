@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.repository;
+
+import io.ricall.jpa.demo.jpavalidation.entity.Product;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Root;
+
+import java.util.Collection;
+
+@RequiredArgsConstructor
+public class ProductUpdateRepositoryImpl implements ProductUpdateRepository {
+    private static final String ID = "id";
+    private static final String VERSION = "version";
+
+    private final EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int update(long id, Product changes, Collection<String> fields, Long version) {
+        final CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        final CriteriaUpdate<Product> update = builder.createCriteriaUpdate(Product.class);
+        final Root<Product> product = update.from(Product.class);
+
+        final BeanWrapper values = PropertyAccessorFactory.forBeanPropertyAccess(changes);
+        for (final String field : fields) {
+            final Object value = values.getPropertyValue(field);
+            update.set(product.get(field), value);
+        }
+        update.set(product.<Long>get(VERSION), builder.sum(product.<Long>get(VERSION), 1L));
+        if (version == null) {
+            update.where(builder.equal(product.get(ID), id));
+        } else {
+            update.where(builder.equal(product.get(ID), id), builder.equal(product.get(VERSION), version));
+        }
+
+        entityManager.flush();
+        final int updated = entityManager.createQuery(update).executeUpdate();
+        entityManager.clear();
+
+        return updated;
+    }
+
+}
@@ -28,17 +28,29 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.annotation.JacksonStdImpl;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.ricall.jpa.demo.jpavalidation.entity.ProductType;
-import io.ricall.jpa.demo.jpavalidation.service.ProductTypeService;
-import lombok.RequiredArgsConstructor;
+import io.ricall.jpa.demo.jpavalidation.service.ProductTypeRegistry;
+import io.ricall.jpa.demo.jpavalidation.timing.Phase;
+import io.ricall.jpa.demo.jpavalidation.timing.ServerTiming;
 
 import java.io.IOException;
 
 @JacksonStdImpl
-@RequiredArgsConstructor
 public class ProductTypeDeserializer extends JsonDeserializer<ProductType> {
+    private static final String LOOKUPS = "product.type.lookups";
+    private static final String RESULT = "result";
 
-    private final ProductTypeService service;
+    private final ProductTypeRegistry registry;
+    private final Counter hits;
+    private final Counter misses;
+
+    public ProductTypeDeserializer(ProductTypeRegistry registry, MeterRegistry meterRegistry) {
+        this.registry = registry;
+        this.hits = lookups(meterRegistry, "hit");
+        this.misses = lookups(meterRegistry, "miss");
+    }
 
     @Override
     public Class<?> handledType() {
@@ -47,8 +59,22 @@ public class ProductTypeDeserializer extends JsonDeserializer<ProductType> {
 
     @Override
     public ProductType deserialize(JsonParser p, DeserializationContext ctxt) throws IOException, JsonProcessingException {
-        return service.fromType(p.getText());
+        final long start = ServerTiming.start();
+        final ProductType type = registry.fromType(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+        ServerTiming.stop(Phase.LOOKUP, start);
+        if (type == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return type;
     }
 
-}
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder(LOOKUPS)
+                .tag(RESULT, result)
+                .description("The number of product types deserialized by looking up their type code")
+                .register(meterRegistry);
+    }
 
+}
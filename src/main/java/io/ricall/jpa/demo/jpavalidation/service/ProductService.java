@@ -24,15 +24,56 @@
 package io.ricall.jpa.demo.jpavalidation.service;
 
 import io.ricall.jpa.demo.jpavalidation.entity.Product;
+import io.ricall.jpa.demo.jpavalidation.model.ProductLookup;
+import io.ricall.jpa.demo.jpavalidation.model.ProductPage;
+import io.ricall.jpa.demo.jpavalidation.model.ProductSearch;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+/**
+ * Products are cached by their id as a string so the cache commands can address them, {@link #findById} reads through
+ * the cache and {@link #save} and {@link #update} write through to it. The read is synchronized, concurrent misses for
+ * the same product share a single query.
+ */
 public interface ProductService {
 
+    @CachePut(value = "product", key = "#result.id.toString()")
     Product save(Product product);
 
+    List<Product> saveAll(List<Product> products);
+
+    @Cacheable(value = "product", key = "#id.toString()", sync = true)
     Optional<Product> findById(Long id);
 
-    Optional<Product> update(Long id, Product product);
+    /**
+     * Looks up several products at once, cached products are served from the product cache and the rest are loaded
+     * with chunked IN queries.
+     *
+     * @param ids the products to look up
+     * @return a lookup for every requested id, in request order
+     */
+    List<ProductLookup> findAllById(List<Long> ids);
+
+    /**
+     * Updates only the given fields of a product, without reading it first.
+     *
+     * @param id the product to update
+     * @param changes the new field values
+     * @param fields the fields to copy from {@code changes}
+     * @param version the version the client last saw, or {@code null} to update any version
+     * @return the updated product, or empty when it doesn't exist
+     * @throws org.springframework.dao.OptimisticLockingFailureException when the product has a different version
+     */
+    @CachePut(value = "product", key = "#id.toString()", unless = "#result == null")
+    Optional<Product> update(Long id, Product changes, Collection<String> fields, Long version);
+
+    ProductPage search(ProductSearch search);
+
+    void exportAll(Consumer<Product> consumer);
 
 }
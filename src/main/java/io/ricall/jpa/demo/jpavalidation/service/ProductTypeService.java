@@ -30,10 +30,10 @@ import java.util.List;
 
 public interface ProductTypeService {
 
-    @Cacheable("productType")
+    @Cacheable(value = "productType", sync = true)
     List<ProductType> getProductTypes();
 
-    @Cacheable("type")
+    @Cacheable(value = "type", sync = true)
     ProductType fromType(String type);
 
 }
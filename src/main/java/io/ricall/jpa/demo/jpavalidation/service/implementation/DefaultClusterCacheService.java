@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.service.implementation;
+
+import io.ricall.jpa.demo.jpavalidation.cache.CacheInvalidator;
+import io.ricall.jpa.demo.jpavalidation.config.ClusterProperties;
+import io.ricall.jpa.demo.jpavalidation.entity.CacheChange;
+import io.ricall.jpa.demo.jpavalidation.repository.CacheChangeRepository;
+import io.ricall.jpa.demo.jpavalidation.service.ClusterCacheService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Polls the {@code CACHE_CHANGELOG} table for invalidations made by the other nodes. Each poll is a primary key range
+ * scan past the last change seen, so an idle cluster costs one indexed query per node per poll interval.
+ *
+ * <p>Ids are handed out when a change is inserted, not when it commits, so a change can become visible after changes
+ * with higher ids. Ids skipped by a poll are remembered as gaps and looked up again by the following polls until the
+ * change turns up or {@code gap-timeout} has passed (the id may never be used, e.g. when its transaction rolled back).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DefaultClusterCacheService implements ClusterCacheService {
+    private static final int MAX_GAPS = 1000;
+
+    private final CacheChangeRepository cacheChangeRepository;
+    private final CacheInvalidator cacheInvalidator;
+    private final ClusterProperties clusterProperties;
+    private final TaskScheduler taskScheduler;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final List<ScheduledFuture<?>> tasks = new CopyOnWriteArrayList<>();
+    private final SortedMap<Long, Long> gaps = new TreeMap<>();
+    private long lastSeen;
+
+    @PostConstruct
+    public void start() {
+        if (clusterProperties.isEnabled()) {
+            synchronized (this) {
+                lastSeen = cacheChangeRepository.findLatestId();
+            }
+            tasks.add(taskScheduler.scheduleWithFixedDelay(this::poll, clusterProperties.getPollInterval()));
+            tasks.add(taskScheduler.scheduleWithFixedDelay(this::prune, clusterProperties.getRetention()));
+            log.info(" --> Polling cache changelog every {} as node {}", clusterProperties.getPollInterval(), nodeId);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        tasks.forEach(task -> task.cancel(false));
+        tasks.clear();
+    }
+
+    @Override
+    public void publish(String cacheName, String key) {
+        if (clusterProperties.isEnabled()) {
+            cacheChangeRepository.save(CacheChange.builder()
+                    .nodeId(nodeId)
+                    .cacheName(cacheName)
+                    .cacheKey(key)
+                    .created(LocalDateTime.now())
+                    .build());
+        }
+    }
+
+    @Override
+    public synchronized void poll() {
+        final long now = System.nanoTime();
+        gaps.values().removeIf(deadline -> deadline - now < 0);
+        if (!gaps.isEmpty()) {
+            for (CacheChange change : cacheChangeRepository.findByIdIn(List.copyOf(gaps.keySet()))) {
+                gaps.remove(change.getId());
+                apply(change);
+            }
+        }
+        for (CacheChange change : cacheChangeRepository.findByIdGreaterThanOrderByIdAsc(lastSeen)) {
+            watchGaps(lastSeen, change.getId(), now + clusterProperties.getGapTimeout().toNanos());
+            apply(change);
+            lastSeen = change.getId();
+        }
+    }
+
+    private void apply(CacheChange change) {
+        if (!nodeId.equals(change.getNodeId())) {
+            log.info(" --> Applying cache change {} from node {}", change.getId(), change.getNodeId());
+            cacheInvalidator.apply(change.getCacheName(), change.getCacheKey());
+        }
+    }
+
+    /**
+     * Remembers the ids between two consecutive changes, at most {@code MAX_GAPS} are watched at once.
+     */
+    private void watchGaps(long previous, long next, long deadline) {
+        long id = previous + 1;
+        while (id < next && gaps.size() < MAX_GAPS) {
+            gaps.put(id, deadline);
+            id++;
+        }
+        if (id < next) {
+            log.warn(" --> Not watching cache changelog ids {} to {}, too many gaps", id, next - 1);
+        }
+    }
+
+    private void prune() {
+        final int pruned = cacheChangeRepository.deleteCreatedBefore(LocalDateTime.now().minus(clusterProperties.getRetention()));
+        log.debug(" --> Pruned {} cache changes", pruned);
+    }
+
+}
@@ -23,35 +23,200 @@
 
 package io.ricall.jpa.demo.jpavalidation.service.implementation;
 
+import io.ricall.jpa.demo.jpavalidation.config.BatchProperties;
+import io.ricall.jpa.demo.jpavalidation.config.LookupProperties;
+import io.ricall.jpa.demo.jpavalidation.config.SearchProperties;
 import io.ricall.jpa.demo.jpavalidation.entity.Product;
+import io.ricall.jpa.demo.jpavalidation.entity.ProductType;
+import io.ricall.jpa.demo.jpavalidation.model.ProductLookup;
+import io.ricall.jpa.demo.jpavalidation.model.ProductPage;
+import io.ricall.jpa.demo.jpavalidation.model.ProductSearch;
 import io.ricall.jpa.demo.jpavalidation.repository.ProductRepository;
+import io.ricall.jpa.demo.jpavalidation.service.ClusterCacheService;
 import io.ricall.jpa.demo.jpavalidation.service.ProductService;
+import io.ricall.jpa.demo.jpavalidation.service.ProductTypeService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static io.ricall.jpa.demo.jpavalidation.config.CacheConfiguration.PRODUCT_CACHE;
 
 @Service
 @RequiredArgsConstructor
 public class DefaultProductService implements ProductService {
 
     private final ProductRepository productRepository;
+    private final EntityManager entityManager;
+    private final ProductTypeService productTypeService;
+    private final BatchProperties batchProperties;
+    private final SearchProperties searchProperties;
+    private final ClusterCacheService clusterCacheService;
+    private final LookupProperties lookupProperties;
+    private final CacheManager cacheManager;
+    private final ProductWriteCoalescer productWriteCoalescer;
 
     @Override
     public Product save(Product product) {
+        if (productWriteCoalescer.isEnabled()) {
+            return productWriteCoalescer.save(product);
+        }
         return productRepository.save(product);
     }
 
+    @Override
+    @Transactional
+    public List<Product> saveAll(List<Product> products) {
+        final int chunkSize = batchProperties.getChunkSize();
+        final List<Product> saved = new ArrayList<>(products.size());
+        for (final Product product : products) {
+            saved.add(productRepository.save(product));
+            if (saved.size() % chunkSize == 0) {
+                flushAndClear();
+            }
+        }
+        flushAndClear();
+
+        return saved;
+    }
+
     @Override
     public Optional<Product> findById(Long id) {
         return productRepository.findById(id);
     }
 
     @Override
-    public Optional<Product> update(Long id, Product modifiedProduct) {
-        return productRepository.findById(id)
-                .map(product -> product.merge(modifiedProduct))
-                .map(productRepository::save);
+    public List<ProductLookup> findAllById(List<Long> ids) {
+        final Optional<Cache> cache = Optional.ofNullable(cacheManager.getCache(PRODUCT_CACHE));
+        final Map<Long, Product> products = new HashMap<>();
+        final List<Long> misses = new ArrayList<>();
+
+        final Set<Long> distinct = ids.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        for (final Long id : distinct) {
+            final Optional<Product> cached = cache.map(productCache -> productCache.get(id.toString(), Product.class));
+            if (cached.isPresent()) {
+                products.put(id, cached.get());
+            } else {
+                misses.add(id);
+            }
+        }
+
+        final int chunkSize = lookupProperties.getChunkSize();
+        for (int start = 0; start < misses.size(); start += chunkSize) {
+            final List<Long> chunk = misses.subList(start, Math.min(start + chunkSize, misses.size()));
+            productRepository.findAllById(chunk).forEach(product -> {
+                products.put(product.getId(), product);
+                cache.ifPresent(productCache -> productCache.put(Long.toString(product.getId()), product));
+            });
+        }
+
+        return ids.stream()
+                .map(id -> lookup(id, products))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Optional<Product> update(Long id, Product changes, Collection<String> fields, Long version) {
+        if (fields.isEmpty()) {
+            return productRepository.findById(id)
+                    .map(product -> checkVersion(product, version));
+        }
+        if (productRepository.update(id, changes, fields, version) == 0) {
+            if (version != null && productRepository.existsById(id)) {
+                throw versionConflict(id, version);
+            }
+            return Optional.empty();
+        }
+        clusterCacheService.publish(PRODUCT_CACHE, id.toString());
+
+        return productRepository.findById(id);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ProductPage search(ProductSearch search) {
+        final ProductType type = Optional.ofNullable(search.getType())
+                .map(productTypeService::fromType)
+                .orElse(null);
+        if (search.getType() != null && type == null) {
+            return ProductPage.builder().products(List.of()).build();
+        }
+        final int size = pageSize(search.getSize());
+        final List<Product> products = productRepository.search(search, type, size + 1);
+        if (products.size() > size) {
+            return ProductPage.builder()
+                    .products(products.subList(0, size))
+                    .next(products.get(size - 1).getId())
+                    .build();
+        }
+        return ProductPage.builder().products(products).build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAll(Consumer<Product> consumer) {
+        final int chunkSize = batchProperties.getChunkSize();
+        try (Stream<Product> products = productRepository.streamAll()) {
+            final Iterator<Product> iterator = products.iterator();
+            int count = 0;
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                count++;
+                if (count % chunkSize == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+
+    private static ProductLookup lookup(Long id, Map<Long, Product> products) {
+        final Product product = Optional.ofNullable(id).map(products::get).orElse(null);
+        return ProductLookup.builder()
+                .id(id)
+                .found(product != null)
+                .product(product)
+                .build();
+    }
+
+    private static Product checkVersion(Product product, Long version) {
+        if (version != null && version != product.getVersion()) {
+            throw versionConflict(product.getId(), version);
+        }
+        return product;
+    }
+
+    private static OptimisticLockingFailureException versionConflict(long id, long version) {
+        return new OptimisticLockingFailureException(String.format("Product %d is no longer at version %d", id, version));
+    }
+
+    private int pageSize(Integer requested) {
+        final int size = Optional.ofNullable(requested).orElse(searchProperties.getDefaultPageSize());
+        return Math.max(1, Math.min(size, searchProperties.getMaxPageSize()));
+    }
+
+    private void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
     }
 
 }
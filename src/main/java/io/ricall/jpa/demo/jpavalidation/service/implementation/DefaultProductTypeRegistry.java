@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.service.implementation;
+
+import io.ricall.jpa.demo.jpavalidation.entity.ProductType;
+import io.ricall.jpa.demo.jpavalidation.repository.ProductTypeRepository;
+import io.ricall.jpa.demo.jpavalidation.service.ProductTypeRegistry;
+import io.ricall.jpa.demo.jpavalidation.service.ProductTypesRefreshedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DefaultProductTypeRegistry implements ProductTypeRegistry {
+
+    private final ProductTypeRepository productTypeRepository;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AtomicReference<ProductTypeSnapshot> snapshot = new AtomicReference<>(new ProductTypeSnapshot(List.of()));
+
+    @Override
+    public List<ProductType> getProductTypes() {
+        return snapshot.get().getTypes();
+    }
+
+    @Override
+    public ProductType fromType(CharSequence type) {
+        return snapshot.get().find(type);
+    }
+
+    @Override
+    public ProductType fromType(char[] buffer, int offset, int length) {
+        return snapshot.get().find(buffer, offset, length);
+    }
+
+    @Override
+    @PostConstruct
+    public void refresh() {
+        entityManagerFactory.getCache().evict(ProductType.class);
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegion(ProductType.QUERY_CACHE_REGION);
+
+        final List<ProductType> types = new ArrayList<>();
+        productTypeRepository.findAll().forEach(types::add);
+
+        snapshot.set(new ProductTypeSnapshot(types));
+        log.info(" --> Loaded {} product types", types.size());
+        eventPublisher.publishEvent(new ProductTypesRefreshedEvent(List.copyOf(types)));
+    }
+
+}
@@ -50,7 +50,7 @@ public class DefaultProductTypeService implements ProductTypeService {
 
     @Override
     public ProductType fromType(String type) {
-        log.info(" --> Looking up product type {}", type);
+        log.debug(" --> Looking up product type {}", type);
         return productTypeRepository.findByType(type);
     }
 
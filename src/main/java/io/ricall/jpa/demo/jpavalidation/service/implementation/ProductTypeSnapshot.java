@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.service.implementation;
+
+import io.ricall.jpa.demo.jpavalidation.entity.ProductType;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable open addressing table of product types keyed by their type code.
+ *
+ * <p>Lookups hash and compare characters in place so a type can be resolved straight from a parser buffer without
+ * creating a {@link String}.
+ */
+final class ProductTypeSnapshot {
+    private static final int MIN_CAPACITY = 8;
+    private static final int HASH_MULTIPLIER = 31;
+    private static final int HASH_SPREAD = 16;
+
+    private final List<ProductType> types;
+    private final char[][] keys;
+    private final ProductType[] values;
+    private final int mask;
+
+    ProductTypeSnapshot(Collection<ProductType> productTypes) {
+        this.types = List.copyOf(productTypes);
+
+        int capacity = MIN_CAPACITY;
+        while (capacity < types.size() * 2) {
+            capacity <<= 1;
+        }
+        this.keys = new char[capacity][];
+        this.values = new ProductType[capacity];
+        this.mask = capacity - 1;
+
+        for (final ProductType type : types) {
+            final char[] key = type.getType().toCharArray();
+            int slot = spread(hash(key, 0, key.length));
+            while (keys[slot & mask] != null && !Arrays.equals(keys[slot & mask], key)) {
+                slot++;
+            }
+            keys[slot & mask] = key;
+            values[slot & mask] = type;
+        }
+    }
+
+    List<ProductType> getTypes() {
+        return types;
+    }
+
+    ProductType find(char[] buffer, int offset, int length) {
+        int slot = spread(hash(buffer, offset, length));
+        char[] key = keys[slot & mask];
+        while (key != null && !Arrays.equals(key, 0, key.length, buffer, offset, offset + length)) {
+            slot++;
+            key = keys[slot & mask];
+        }
+        return values[slot & mask];
+    }
+
+    ProductType find(CharSequence type) {
+        int slot = spread(hash(type));
+        char[] key = keys[slot & mask];
+        while (key != null && !matches(key, type)) {
+            slot++;
+            key = keys[slot & mask];
+        }
+        return values[slot & mask];
+    }
+
+    private static int hash(char[] buffer, int offset, int length) {
+        int hash = 0;
+        for (int index = offset; index < offset + length; index++) {
+            hash = HASH_MULTIPLIER * hash + buffer[index];
+        }
+        return hash;
+    }
+
+    private static int hash(CharSequence type) {
+        int hash = 0;
+        for (int index = 0; index < type.length(); index++) {
+            hash = HASH_MULTIPLIER * hash + type.charAt(index);
+        }
+        return hash;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> HASH_SPREAD);
+    }
+
+    private static boolean matches(char[] key, CharSequence type) {
+        boolean matches = key.length == type.length();
+        for (int index = 0; matches && index < key.length; index++) {
+            matches = key[index] == type.charAt(index);
+        }
+        return matches;
+    }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.service.implementation;
+
+import io.ricall.jpa.demo.jpavalidation.concurrent.Futures;
+import io.ricall.jpa.demo.jpavalidation.config.WriteCoalescingProperties;
+import io.ricall.jpa.demo.jpavalidation.entity.Product;
+import io.ricall.jpa.demo.jpavalidation.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Groups concurrent single product saves into one transaction (group commit). Callers queue their product and wait
+ * while a dedicated writer collects up to {@code max-batch-size} products, waiting at most {@code linger} after the
+ * first, and saves them together. When the batch fails every product in it is retried in its own transaction so a
+ * bad product only fails its own caller.
+ */
+@Slf4j
+@Component
+public class ProductWriteCoalescer {
+    private static final long IDLE_POLL_MILLIS = 100;
+    private static final long STOP_TIMEOUT_MILLIS = 5000;
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final WriteCoalescingProperties properties;
+    private final BlockingQueue<PendingWrite> queue;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public ProductWriteCoalescer(ProductRepository productRepository, TransactionTemplate transactionTemplate,
+                                 WriteCoalescingProperties properties) {
+        this.productRepository = productRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Saves the product with the next batch, or straight away when the writer isn't running or its queue is full.
+     *
+     * @param product the product to save
+     * @return the saved product
+     */
+    public Product save(Product product) {
+        final PendingWrite write = new PendingWrite(product);
+        if (!running || !queue.offer(write)) {
+            return productRepository.save(product);
+        }
+        if (!running && queue.remove(write)) {
+            // stopped while the write was being queued, the writer may already have drained the queue and exited
+            return productRepository.save(product);
+        }
+        return Futures.join(write.result);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (properties.isEnabled()) {
+            running = true;
+            writer = new Thread(this::drain, "product-writer");
+            writer.setDaemon(true);
+            writer.start();
+            log.info(" --> Coalescing product writes (batches of {}, linger {})", properties.getMaxBatchSize(), properties.getLinger());
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer != null) {
+            running = false;
+            writer.interrupt();
+            writer.join(STOP_TIMEOUT_MILLIS);
+            final List<PendingWrite> remaining = new ArrayList<>();
+            queue.drainTo(remaining);
+            if (!remaining.isEmpty()) {
+                log.warn(" --> Product writer stopped, saving the remaining {} products individually", remaining.size());
+                remaining.forEach(this::writeAlone);
+            }
+        }
+    }
+
+    private void drain() {
+        final List<PendingWrite> batch = new ArrayList<>(properties.getMaxBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                log.debug(" --> Product writer stopping, writing the remaining {} products", queue.size() + batch.size());
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void collect(List<PendingWrite> batch) throws InterruptedException {
+        final PendingWrite first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first != null) {
+            batch.add(first);
+            final long deadline = System.nanoTime() + properties.getLinger().toNanos();
+            PendingWrite next = first;
+            while (next != null && batch.size() < properties.getMaxBatchSize()) {
+                next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (next != null) {
+                    batch.add(next);
+                }
+            }
+        }
+    }
+
+    private void write(List<PendingWrite> batch) {
+        List<Product> saved = null;
+        // -@cs[IllegalCatch] any failure falls back to saving the products one at a time
+        try {
+            saved = saveInOneTransaction(batch);
+        } catch (RuntimeException e) {
+            log.warn(" --> Batch of {} products failed, saving them individually", batch.size(), e);
+        }
+        if (saved == null) {
+            batch.forEach(this::writeAlone);
+        } else {
+            for (int index = 0; index < batch.size(); index++) {
+                batch.get(index).result.complete(saved.get(index));
+            }
+        }
+    }
+
+    private List<Product> saveInOneTransaction(List<PendingWrite> batch) {
+        return transactionTemplate.execute(status -> batch.stream()
+                .map(write -> productRepository.save(write.product))
+                .collect(Collectors.toList()));
+    }
+
+    private void writeAlone(PendingWrite write) {
+        write.reset();
+        // -@cs[IllegalCatch] the failure is handed to the caller waiting for this product
+        try {
+            write.result.complete(productRepository.save(write.product));
+        } catch (RuntimeException e) {
+            write.result.completeExceptionally(e);
+        }
+    }
+
+    private static final class PendingWrite {
+        private final Product product;
+        private final long id;
+        private final long version;
+        private final CompletableFuture<Product> result = new CompletableFuture<>();
+
+        private PendingWrite(Product product) {
+            this.product = product;
+            this.id = product.getId();
+            this.version = product.getVersion();
+        }
+
+        /**
+         * Undoes the id and version a failed batch assigned to the product.
+         */
+        private void reset() {
+            product.setId(id);
+            product.setVersion(version);
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.statistics;
+
+import io.ricall.jpa.demo.jpavalidation.model.SlowQuery;
+import io.ricall.jpa.demo.jpavalidation.model.StatementSummary;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Aggregates the SQL statements executed through the {@link StatisticsDataSource} by their normalized text.
+ *
+ * <p>At most {@code capacity} statements are tracked using the space saving algorithm: when a new statement arrives
+ * and the table is full it replaces the least executed statement and inherits its count (which is reported as the
+ * count's possible error). Frequent statements therefore always stay in the table however many distinct statements
+ * are executed, and the memory used is fixed.
+ */
+public class QueryStatistics {
+
+    private final int capacity;
+    private final long slowQueryThreshold;
+    private final SlowQueryLog slowQueryLog;
+    private final ConcurrentMap<String, StatementStatistics> statements = new ConcurrentHashMap<>();
+
+    public QueryStatistics(int capacity, Duration slowQueryThreshold, int slowQueryLogSize) {
+        this.capacity = capacity;
+        this.slowQueryThreshold = slowQueryThreshold.toNanos();
+        this.slowQueryLog = new SlowQueryLog(slowQueryLogSize);
+    }
+
+    /**
+     * @param sql the statement as executed
+     * @param nanos how long the execution took
+     * @param rows the number of rows updated, or 0 for queries whose rows are added once they have been read
+     * @return the statistics the execution was recorded in
+     */
+    public StatementStatistics record(String sql, long nanos, long rows) {
+        final StatementStatistics statistics = statisticsFor(SqlNormalizer.normalize(sql));
+        statistics.record(nanos, rows);
+        if (nanos >= slowQueryThreshold) {
+            slowQueryLog.add(sql, nanos, rows);
+        }
+        return statistics;
+    }
+
+    /**
+     * @return every tracked statement, most executed first
+     */
+    public List<StatementSummary> getStatements() {
+        return statements.values().stream()
+                .map(StatementStatistics::summary)
+                .sorted(Comparator.comparingLong(StatementSummary::getCount).reversed())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return the statements with the highest 99th percentile execution time
+     */
+    public List<StatementSummary> getSlowest(int top) {
+        return statements.values().stream()
+                .sorted(Comparator.comparingLong(StatementStatistics::getP99Micros).reversed())
+                .limit(top)
+                .map(StatementStatistics::summary)
+                .collect(Collectors.toList());
+    }
+
+    public List<SlowQuery> getSlowQueries() {
+        return slowQueryLog.recent();
+    }
+
+    public synchronized void clear() {
+        statements.clear();
+        slowQueryLog.clear();
+    }
+
+    private StatementStatistics statisticsFor(String sql) {
+        final StatementStatistics existing = statements.get(sql);
+        if (existing != null) {
+            return existing;
+        }
+        return track(sql);
+    }
+
+    private synchronized StatementStatistics track(String sql) {
+        StatementStatistics statistics = statements.get(sql);
+        if (statistics == null) {
+            long error = 0;
+            if (statements.size() >= capacity) {
+                final StatementStatistics evicted = statements.values().stream()
+                        .min(Comparator.comparingLong(StatementStatistics::getCount))
+                        .orElseThrow();
+                statements.remove(evicted.getSql());
+                error = evicted.getCount();
+            }
+            statistics = new StatementStatistics(sql, error);
+            statements.put(sql, statistics);
+        }
+        return statistics;
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.statistics;
+
+import io.ricall.jpa.demo.jpavalidation.model.QueryStatisticsReport;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Reports the statements measured by {@link StatisticsDataSource} alongside Hibernate's own statistics, which are
+ * only collected while {@code hibernate.generate_statistics} is set.
+ */
+@Endpoint(id = "queries")
+public class QueryStatisticsEndpoint {
+
+    private final QueryStatistics statistics;
+    private final EntityManagerFactory entityManagerFactory;
+    private final int top;
+
+    public QueryStatisticsEndpoint(QueryStatistics statistics, EntityManagerFactory entityManagerFactory, int top) {
+        this.statistics = statistics;
+        this.entityManagerFactory = entityManagerFactory;
+        this.top = top;
+    }
+
+    @ReadOperation
+    public QueryStatisticsReport report() {
+        return QueryStatisticsReport.builder()
+                .statements(statistics.getStatements())
+                .slowest(statistics.getSlowest(top))
+                .slowQueries(statistics.getSlowQueries())
+                .hibernate(hibernate())
+                .build();
+    }
+
+    @DeleteOperation
+    public void reset() {
+        statistics.clear();
+        hibernateStatistics().clear();
+    }
+
+    private Map<String, Object> hibernate() {
+        final Statistics hibernate = hibernateStatistics();
+        final Map<String, Object> report = new LinkedHashMap<>();
+        report.put("enabled", hibernate.isStatisticsEnabled());
+        if (hibernate.isStatisticsEnabled()) {
+            report.put("prepareStatementCount", hibernate.getPrepareStatementCount());
+            report.put("queryExecutionCount", hibernate.getQueryExecutionCount());
+            report.put("queryExecutionMaxTime", hibernate.getQueryExecutionMaxTime());
+            report.put("queryExecutionMaxTimeQueryString", hibernate.getQueryExecutionMaxTimeQueryString());
+            report.put("entityLoadCount", hibernate.getEntityLoadCount());
+            report.put("entityFetchCount", hibernate.getEntityFetchCount());
+            report.put("entityInsertCount", hibernate.getEntityInsertCount());
+            report.put("entityUpdateCount", hibernate.getEntityUpdateCount());
+            report.put("collectionFetchCount", hibernate.getCollectionFetchCount());
+            report.put("secondLevelCacheHitCount", hibernate.getSecondLevelCacheHitCount());
+            report.put("secondLevelCacheMissCount", hibernate.getSecondLevelCacheMissCount());
+            report.put("queryCacheHitCount", hibernate.getQueryCacheHitCount());
+            report.put("queryCacheMissCount", hibernate.getQueryCacheMissCount());
+            report.put("flushCount", hibernate.getFlushCount());
+            report.put("slowestQueries", slowestQueries(hibernate));
+        }
+        return report;
+    }
+
+    /**
+     * @return the HQL queries with the highest maximum execution time
+     */
+    private List<Map<String, Object>> slowestQueries(Statistics hibernate) {
+        return Arrays.stream(hibernate.getQueries())
+                .map(query -> query(query, hibernate.getQueryStatistics(query)))
+                .sorted(Comparator.comparingLong((Map<String, Object> query) -> (Long) query.get("executionMaxTime")).reversed())
+                .limit(top)
+                .collect(Collectors.toList());
+    }
+
+    private static Map<String, Object> query(String query, org.hibernate.stat.QueryStatistics statistics) {
+        final Map<String, Object> report = new LinkedHashMap<>();
+        report.put("query", query);
+        report.put("executionCount", statistics.getExecutionCount());
+        report.put("executionRowCount", statistics.getExecutionRowCount());
+        report.put("executionAvgTime", statistics.getExecutionAvgTime());
+        report.put("executionMaxTime", statistics.getExecutionMaxTime());
+        return report;
+    }
+
+    private Statistics hibernateStatistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.statistics;
+
+import io.ricall.jpa.demo.jpavalidation.model.SlowQuery;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ring buffer of the most recent slow queries, statements are truncated so the log has a fixed upper size.
+ */
+final class SlowQueryLog {
+    private static final int MAX_SQL_LENGTH = 2000;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final SlowQuery[] entries;
+    private int next;
+    private int size;
+
+    SlowQueryLog(int capacity) {
+        this.entries = new SlowQuery[capacity];
+    }
+
+    synchronized void add(String sql, long nanos, long rows) {
+        if (entries.length > 0) {
+            entries[next] = SlowQuery.builder()
+                    .executed(Instant.now())
+                    .sql(truncate(sql))
+                    .millis(nanos / NANOS_PER_MILLI)
+                    .rows(rows)
+                    .build();
+            next = (next + 1) % entries.length;
+            size = Math.min(size + 1, entries.length);
+        }
+    }
+
+    /**
+     * @return the slow queries, newest first
+     */
+    synchronized List<SlowQuery> recent() {
+        final List<SlowQuery> recent = new ArrayList<>(size);
+        for (int offset = 1; offset <= size; offset++) {
+            recent.add(entries[(next - offset + entries.length) % entries.length]);
+        }
+        return recent;
+    }
+
+    synchronized void clear() {
+        Arrays.fill(entries, null);
+        next = 0;
+        size = 0;
+    }
+
+    private static String truncate(String sql) {
+        String truncated = sql;
+        if (sql.length() > MAX_SQL_LENGTH) {
+            truncated = sql.substring(0, MAX_SQL_LENGTH) + "...";
+        }
+        return truncated;
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.statistics;
+
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes SQL so executions of the same statement are aggregated together: string and numeric literals become
+ * {@code ?}, whitespace is collapsed and parameter lists of any length (such as padded IN lists) become {@code ?...}.
+ */
+final class SqlNormalizer {
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\?(\\s*,\\s*\\?)+");
+    private static final char QUOTE = '\'';
+    private static final char PARAMETER = '?';
+
+    private SqlNormalizer() {
+    }
+
+    static String normalize(String sql) {
+        final StringBuilder normalized = new StringBuilder(sql.length());
+        int index = 0;
+        while (index < sql.length()) {
+            final char current = sql.charAt(index);
+            if (current == QUOTE) {
+                index = skipString(sql, index + 1);
+                normalized.append(PARAMETER);
+            } else if (Character.isDigit(current) && !inIdentifier(normalized)) {
+                index = skipNumber(sql, index + 1);
+                normalized.append(PARAMETER);
+            } else if (Character.isWhitespace(current)) {
+                index++;
+                if (normalized.length() > 0 && normalized.charAt(normalized.length() - 1) != ' ') {
+                    normalized.append(' ');
+                }
+            } else {
+                index++;
+                normalized.append(current);
+            }
+        }
+        return PARAMETER_LIST.matcher(normalized.toString().trim()).replaceAll("?...");
+    }
+
+    /**
+     * @return the index following the quote closing the string, {@code ''} is an escaped quote inside it
+     */
+    private static int skipString(String sql, int start) {
+        int index = start;
+        boolean closed = false;
+        while (index < sql.length() && !closed) {
+            if (escapedQuote(sql, index)) {
+                index += 2;
+            } else {
+                closed = sql.charAt(index) == QUOTE;
+                index++;
+            }
+        }
+        return index;
+    }
+
+    private static boolean escapedQuote(String sql, int index) {
+        return sql.charAt(index) == QUOTE && index + 1 < sql.length() && sql.charAt(index + 1) == QUOTE;
+    }
+
+    private static int skipNumber(String sql, int start) {
+        int index = start;
+        while (index < sql.length() && (Character.isDigit(sql.charAt(index)) || sql.charAt(index) == '.')) {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean inIdentifier(StringBuilder normalized) {
+        boolean identifier = false;
+        if (normalized.length() > 0) {
+            final char previous = normalized.charAt(normalized.length() - 1);
+            identifier = Character.isLetterOrDigit(previous) || previous == '_' || previous == '$';
+        }
+        return identifier;
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.statistics;
+
+import io.ricall.jpa.demo.jpavalidation.model.StatementSummary;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Execution statistics of one normalized statement. Times are kept in microseconds.
+ */
+public final class StatementStatistics {
+    private static final double MICROS_PER_MILLI = 1000.0;
+    private static final double P99 = 99.0;
+
+    private final String sql;
+    private final long error;
+    private final LogHistogram histogram = new LogHistogram();
+
+    private long executions;
+    private long totalMicros;
+    private long maxMicros;
+    private long rows;
+
+    /**
+     * @param sql the normalized statement
+     * @param error executions inherited from the statement this one replaced, the count can be overestimated by this much
+     */
+    StatementStatistics(String sql, long error) {
+        this.sql = sql;
+        this.error = error;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    synchronized void record(long nanos, long rowCount) {
+        final long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        executions++;
+        totalMicros += micros;
+        maxMicros = Math.max(maxMicros, micros);
+        rows += rowCount;
+        histogram.record(micros);
+    }
+
+    synchronized void addRows(long rowCount) {
+        rows += rowCount;
+    }
+
+    /**
+     * @return the space saving count, the executions seen plus the inherited error
+     */
+    synchronized long getCount() {
+        return error + executions;
+    }
+
+    synchronized long getP99Micros() {
+        return histogram.percentile(P99);
+    }
+
+    synchronized StatementSummary summary() {
+        double mean = 0;
+        if (executions > 0) {
+            mean = totalMicros / (double) executions / MICROS_PER_MILLI;
+        }
+        return StatementSummary.builder()
+                .sql(sql)
+                .count(error + executions)
+                .countError(error)
+                .rows(rows)
+                .meanMillis(mean)
+                .maxMillis(maxMicros / MICROS_PER_MILLI)
+                .p99Millis(histogram.percentile(P99) / MICROS_PER_MILLI)
+                .build();
+    }
+
+}
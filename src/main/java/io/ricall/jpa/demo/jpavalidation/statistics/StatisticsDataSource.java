@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.statistics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Measures every statement executed on the connections of the target data source and records it in
+ * {@link QueryStatistics}. Connections, statements and result sets are wrapped in JDK proxies: executions are timed
+ * and their update counts recorded, the rows of a query are counted as its result set is read and added once it is
+ * exhausted or closed.
+ */
+public class StatisticsDataSource extends DelegatingDataSource {
+    private static final ClassLoader CLASS_LOADER = StatisticsDataSource.class.getClassLoader();
+
+    private final QueryStatistics statistics;
+
+    public StatisticsDataSource(DataSource target, QueryStatistics statistics) {
+        super(target);
+        this.statistics = statistics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(CLASS_LOADER, new Class<?>[] {Connection.class}, new ConnectionHandler(connection));
+    }
+
+    private static Object invoke(Object target, Method method, Object... args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private static long rowCount(Object result) {
+        long rows = 0;
+        if (result instanceof Number) {
+            rows = Math.max(0, ((Number) result).longValue());
+        } else if (result instanceof int[]) {
+            for (int count : (int[]) result) {
+                rows += Math.max(0, count);
+            }
+        } else if (result instanceof long[]) {
+            for (long count : (long[]) result) {
+                rows += Math.max(0, count);
+            }
+        }
+        return rows;
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+
+        private ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            final Object result = StatisticsDataSource.invoke(connection, method, args);
+            Object wrapped = result;
+            if (result instanceof Statement) {
+                String sql = null;
+                if (!method.getName().equals("createStatement")) {
+                    sql = (String) args[0];
+                }
+                final StatementHandler handler = new StatementHandler((Statement) result, sql);
+                wrapped = Proxy.newProxyInstance(CLASS_LOADER, new Class<?>[] {method.getReturnType()}, handler);
+            }
+            return wrapped;
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final String preparedSql;
+        private String batchSql;
+        private StatementStatistics last;
+
+        private StatementHandler(Statement statement, String preparedSql) {
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            final String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(method, args);
+            }
+            if (name.equals("addBatch") && args != null && args.length == 1) {
+                batchSql = (String) args[0];
+            }
+            final Object result = StatisticsDataSource.invoke(statement, method, args);
+            if (name.equals("getResultSet")) {
+                return wrapResultSet(result);
+            }
+            return result;
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            String sql = preparedSql;
+            if (args != null && args.length > 0 && args[0] instanceof String) {
+                sql = (String) args[0];
+            } else if (sql == null) {
+                sql = batchSql;
+            }
+            final long start = System.nanoTime();
+            final Object result = StatisticsDataSource.invoke(statement, method, args);
+            if (sql != null) {
+                last = statistics.record(sql, System.nanoTime() - start, rowCount(result));
+            }
+            return wrapResultSet(result);
+        }
+
+        /**
+         * Only the results of the statement itself are counted, generated keys are not.
+         */
+        private Object wrapResultSet(Object result) {
+            Object wrapped = result;
+            if (result instanceof ResultSet && last != null) {
+                wrapped = Proxy.newProxyInstance(CLASS_LOADER, new Class<?>[] {ResultSet.class}, new ResultSetHandler((ResultSet) result, last));
+            }
+            return wrapped;
+        }
+    }
+
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet resultSet;
+        private final StatementStatistics statistics;
+        private long rows;
+        private boolean recorded;
+
+        private ResultSetHandler(ResultSet resultSet, StatementStatistics statistics) {
+            this.resultSet = resultSet;
+            this.statistics = statistics;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            final Object result = StatisticsDataSource.invoke(resultSet, method, args);
+            if (method.getName().equals("next")) {
+                if (Boolean.TRUE.equals(result)) {
+                    rows++;
+                } else {
+                    recordRows();
+                }
+            } else if (method.getName().equals("close")) {
+                recordRows();
+            }
+            return result;
+        }
+
+        private void recordRows() {
+            if (!recorded) {
+                recorded = true;
+                statistics.addRows(rows);
+            }
+        }
+    }
+
+}
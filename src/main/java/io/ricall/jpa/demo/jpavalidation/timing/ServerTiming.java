@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.timing;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Accumulates the time a request spends in each {@link Phase}. A recording is bound to the thread handling the request
+ * (and handed on to the database executor by {@link #propagate(Runnable)}), the instrumented code records into
+ * whichever recording is bound. It only holds two arrays so recording allocates nothing, and a request is only ever
+ * handled by one thread at a time so the arrays aren't synchronized.
+ *
+ * <p>Nothing is recorded, and the instrumented code only reads a counter, unless {@link #enable()} has been called more
+ * often than {@link #disable()}. Every application context that enables the timing disables it again when it closes,
+ * so a context started later in the same JVM (e.g. another test context) isn't timed unless it enables it itself.
+ */
+public final class ServerTiming {
+    private static final ThreadLocal<ServerTiming> CURRENT = new ThreadLocal<>();
+    private static final Phase[] PHASES = Phase.values();
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private static final AtomicInteger ENABLED = new AtomicInteger();
+
+    private final long started = System.nanoTime();
+    private final long[] durations = new long[PHASES.length];
+    private final int[] counts = new int[PHASES.length];
+
+    public static void enable() {
+        ENABLED.incrementAndGet();
+    }
+
+    public static void disable() {
+        ENABLED.decrementAndGet();
+    }
+
+    /**
+     * @return the start time to pass to {@link #stop(Phase, long)}, or 0 when the thread isn't recording
+     */
+    public static long start() {
+        long start = 0;
+        if (isEnabled() && CURRENT.get() != null) {
+            start = System.nanoTime();
+        }
+        return start;
+    }
+
+    public static void stop(Phase phase, long start) {
+        if (start != 0) {
+            record(phase, System.nanoTime() - start);
+        }
+    }
+
+    public static void record(Phase phase, long duration) {
+        if (isEnabled()) {
+            final ServerTiming timing = CURRENT.get();
+            if (timing != null) {
+                timing.durations[phase.ordinal()] += duration;
+                timing.counts[phase.ordinal()]++;
+            }
+        }
+    }
+
+    /**
+     * Binds the recording to the current thread.
+     *
+     * @return the previously bound recording, to be passed to {@link #restore(ServerTiming)}
+     */
+    public static ServerTiming bind(ServerTiming timing) {
+        final ServerTiming previous = CURRENT.get();
+        CURRENT.set(timing);
+        return previous;
+    }
+
+    public static void restore(ServerTiming previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Task decorator that runs the task with the submitting thread's recording bound.
+     */
+    public static Runnable propagate(Runnable task) {
+        final ServerTiming timing = CURRENT.get();
+        if (timing == null) {
+            return task;
+        }
+        return () -> {
+            final ServerTiming previous = bind(timing);
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    public long getDuration(Phase phase) {
+        return durations[phase.ordinal()];
+    }
+
+    public int getCount(Phase phase) {
+        return counts[phase.ordinal()];
+    }
+
+    public long getTotal() {
+        return System.nanoTime() - started;
+    }
+
+    /**
+     * @return the recorded phases and the total in the {@code Server-Timing} header format
+     */
+    public String toHeader() {
+        final StringBuilder header = new StringBuilder();
+        for (final Phase phase : PHASES) {
+            if (counts[phase.ordinal()] > 0) {
+                header.append(phase.getMetricName()).append(";dur=").append(millis(durations[phase.ordinal()])).append(", ");
+            }
+        }
+        return header.append("total;dur=").append(millis(getTotal())).toString();
+    }
+
+    /**
+     * @return the recorded phases and the total as {@code phase=millis} pairs for a log line
+     */
+    public String toLogFields() {
+        final StringBuilder fields = new StringBuilder();
+        for (final Phase phase : PHASES) {
+            fields.append(phase.getMetricName()).append('=').append(millis(durations[phase.ordinal()])).append(' ');
+        }
+        return fields.append("total=").append(millis(getTotal())).toString();
+    }
+
+    private static boolean isEnabled() {
+        return ENABLED.get() > 0;
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / NANOS_PER_MILLI);
+    }
+
+}
@@ -0,0 +1,3 @@
+CREATE INDEX PRODUCT_INDEX_TYPE_ID ON PUBLIC.PRODUCT(TYPE_ID, ID);
+CREATE INDEX PRODUCT_INDEX_CATEGORY_ID ON PUBLIC.PRODUCT(CATEGORY, SUB_CATEGORY, ID);
+CREATE INDEX PRODUCT_INDEX_TYPE_CATEGORY_ID ON PUBLIC.PRODUCT(TYPE_ID, CATEGORY, SUB_CATEGORY, ID);
@@ -0,0 +1,4 @@
+CREATE UNIQUE INDEX PRODUCT_TYPE_INDEX_TYPE ON PUBLIC.PRODUCT_TYPE(TYPE);
+
+DROP INDEX PUBLIC.PRODUCT_TYPE_INDEX;
+DROP INDEX PUBLIC.PRODUCT_INDEX;
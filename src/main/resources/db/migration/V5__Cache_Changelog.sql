@@ -0,0 +1,10 @@
+CREATE TABLE PUBLIC.CACHE_CHANGELOG
+(
+   ID bigint PRIMARY KEY auto_increment,
+   NODE_ID varchar(36) NOT NULL,
+   CACHE_NAME varchar(255),
+   CACHE_KEY varchar(255),
+   CREATED timestamp NOT NULL
+);
+
+CREATE INDEX CACHE_CHANGELOG_INDEX_CREATED ON PUBLIC.CACHE_CHANGELOG(CREATED);
@@ -0,0 +1 @@
+ALTER TABLE PUBLIC.PRODUCT ADD COLUMN VERSION bigint DEFAULT 0 NOT NULL;
@@ -0,0 +1,8 @@
+-- Sequences continue after the existing ids, each nextval hands out a block of ${idAllocationSize} ids (pooled-lo)
+CREATE SEQUENCE PUBLIC.PRODUCT_SEQ
+   START WITH (SELECT COALESCE(MAX(ID), 0) + 1 FROM PUBLIC.PRODUCT)
+   INCREMENT BY ${idAllocationSize};
+
+CREATE SEQUENCE PUBLIC.PRODUCT_TYPE_SEQ
+   START WITH (SELECT COALESCE(MAX(ID), 0) + 1 FROM PUBLIC.PRODUCT_TYPE)
+   INCREMENT BY ${idAllocationSize};
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.cache;
+
+import io.ricall.jpa.demo.jpavalidation.service.ProductTypeRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.List;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CacheInvalidatorTest {
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private Cache cache;
+
+    @Mock
+    private ProductTypeRegistry productTypeRegistry;
+
+    @InjectMocks
+    private CacheInvalidator invalidator;
+
+    @AfterEach
+    public void cleanup() {
+        verifyNoMoreInteractions(cacheManager, cache, productTypeRegistry);
+    }
+
+    @Test
+    public void verifyApplyWithoutACacheNameResetsEveryCache() {
+        when(cacheManager.getCacheNames()).thenReturn(List.of("product"));
+        when(cacheManager.getCache("product")).thenReturn(cache);
+
+        invalidator.apply(null, null);
+
+        verify(cacheManager).getCacheNames();
+        verify(cacheManager).getCache("product");
+        verify(cache).clear();
+        verify(productTypeRegistry).refresh();
+    }
+
+    @Test
+    public void verifyApplyWithoutAKeyResetsTheCache() {
+        when(cacheManager.getCache("productType")).thenReturn(cache);
+        when(cache.getName()).thenReturn("productType");
+
+        invalidator.apply("productType", null);
+
+        verify(cacheManager).getCache("productType");
+        verify(cache).clear();
+        verify(cache).getName();
+        verify(productTypeRegistry).refresh();
+    }
+
+    @Test
+    public void verifyApplyWithAKeyEvictsTheEntry() {
+        when(cacheManager.getCache("type")).thenReturn(cache);
+        when(cache.getName()).thenReturn("type");
+
+        invalidator.apply("type", "X1");
+
+        verify(cacheManager).getCache("type");
+        verify(cache).evictIfPresent("X1");
+        verify(cache).getName();
+        verify(productTypeRegistry).refresh();
+    }
+
+    @Test
+    public void verifyApplyIgnoresUnknownCaches() {
+        invalidator.apply("unknown", "X1");
+
+        verify(cacheManager).getCache("unknown");
+    }
+
+}
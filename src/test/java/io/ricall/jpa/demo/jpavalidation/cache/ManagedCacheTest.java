@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ManagedCacheTest {
+
+    private final ConcurrentStatsCounter statsCounter = new ConcurrentStatsCounter();
+
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final ManagedCache cache = managedCache(key -> key + "-" + loads.incrementAndGet());
+
+    @AfterEach
+    public void cleanup() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    @Test
+    public void verifyNullValuesAreNotCached() {
+        cache.put("missing", null);
+        assertThat(cache.get("missing")).isNull();
+
+        assertThat(cache.get("missing", () -> null)).isNull();
+        assertThat(cache.getNativeCache().asMap()).doesNotContainKey("missing");
+
+        assertThat(cache.get("present", () -> "value")).isEqualTo("value");
+        assertThat(cache.get("present").get()).isEqualTo("value");
+    }
+
+    @Test
+    public void verifyCacheIsBounded() {
+        for (int index = 0; index < 1000; index++) {
+            cache.put("key" + index, index);
+        }
+        cache.getNativeCache().cleanUp();
+
+        assertThat(cache.getNativeCache().estimatedSize()).isLessThanOrEqualTo(10);
+        assertThat(cache.stats().evictionCount()).isGreaterThanOrEqualTo(990);
+    }
+
+    @Test
+    public void verifyConcurrentMissesAreLoadedOnce() throws Exception {
+        val executor = Executors.newFixedThreadPool(8);
+        try {
+            val started = new CountDownLatch(1);
+            val calls = new AtomicInteger();
+            val results = new ArrayList<Future<String>>();
+            for (int index = 0; index < 8; index++) {
+                results.add(executor.submit(() -> cache.get("key", () -> {
+                    started.await();
+                    Thread.sleep(50);
+                    return "value-" + calls.incrementAndGet();
+                })));
+            }
+            started.countDown();
+            for (val result : results) {
+                assertThat(result.get()).isEqualTo("value-1");
+            }
+            assertThat(calls).hasValue(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void verifyRebuildReloadsEntriesBeforeSwapping() {
+        cache.put("a", "stale");
+        cache.put("b", "stale");
+        val previous = cache.getNativeCache();
+
+        cache.rebuild().join();
+
+        assertThat(cache.getNativeCache()).isNotSameAs(previous);
+        assertThat(previous.asMap()).containsEntry("a", "stale");
+        assertThat((String) cache.get("a").get()).startsWith("a-");
+        assertThat((String) cache.get("b").get()).startsWith("b-");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    public void verifyWritesDuringRebuildWinOverReloadedValues() {
+        val loading = new CountDownLatch(1);
+        val release = new CountDownLatch(1);
+        val gated = managedCache(key -> {
+            loading.countDown();
+            await(release);
+            return key + "-reloaded";
+        });
+        gated.put("a", "stale");
+        gated.put("b", "stale");
+        gated.put("c", "stale");
+
+        val rebuild = gated.rebuild();
+        await(loading);
+        gated.put("a", "written");
+        gated.evict("b");
+        gated.put("d", "added");
+        release.countDown();
+        rebuild.join();
+
+        assertThat(gated.getNativeCache().asMap())
+                .containsEntry("a", "written")
+                .doesNotContainKey("b")
+                .containsEntry("c", "c-reloaded")
+                .containsEntry("d", "added");
+    }
+
+    @Test
+    public void verifyRebuildsRunOneAtATime() {
+        val release = new CountDownLatch(1);
+        val active = new AtomicInteger();
+        val maxActive = new AtomicInteger();
+        val serialized = managedCache(key -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            await(release);
+            active.decrementAndGet();
+            return key + "-" + loads.incrementAndGet();
+        });
+        serialized.put("key", "stale");
+
+        val first = serialized.rebuild();
+        val second = serialized.rebuild();
+        release.countDown();
+        CompletableFuture.allOf(first, second).join();
+
+        assertThat(maxActive).hasValue(1);
+        assertThat(serialized.get("key").get()).isEqualTo("key-2");
+    }
+
+    @Test
+    public void verifyFailedRebuildKeepsTheCurrentEntries() {
+        val failing = new AtomicBoolean(true);
+        val flaky = managedCache(key -> {
+            if (failing.get()) {
+                throw new IllegalStateException("database unavailable");
+            }
+            return key + "-reloaded";
+        });
+        flaky.put("key", "current");
+
+        assertThatThrownBy(() -> flaky.rebuild().join()).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(flaky.get("key").get()).isEqualTo("current");
+
+        failing.set(false);
+        flaky.rebuild().join();
+        assertThat(flaky.get("key").get()).isEqualTo("key-reloaded");
+    }
+
+    @Test
+    public void verifyStatisticsAreRecorded() {
+        cache.get("key");
+        cache.get("key", () -> "value");
+        cache.get("key");
+
+        val stats = cache.stats();
+        assertThat(stats.hitCount()).isEqualTo(1);
+        assertThat(stats.missCount()).isEqualTo(2);
+        assertThat(stats.loadSuccessCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void verifyOnlyStoredValuesAreCountedAsPuts() {
+        cache.get("loaded", () -> "value");
+        cache.put("put", "value");
+        cache.put("put", null);
+        cache.putIfAbsent("absent", "value");
+        cache.putIfAbsent("absent", "other");
+
+        assertThat(cache.putCount()).isEqualTo(2);
+    }
+
+    private ManagedCache managedCache(Function<Object, Object> loader) {
+        return new ManagedCache("test", () -> Caffeine.newBuilder()
+                .maximumSize(10)
+                .recordStats(() -> statsCounter)
+                .executor(Runnable::run)
+                .build(), loader, statsCounter, rebuildExecutor);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.concurrent;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VegasLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    public void verifyLimitGrowsWhileNothingIsQueued() {
+        val limit = new VegasLimit(10, 1, 100);
+
+        for (int sample = 0; sample < 5; sample++) {
+            limit.onSample(FAST, limit.getLimit(), false);
+        }
+
+        assertThat(limit.getLimit()).isGreaterThan(10);
+    }
+
+    @Test
+    public void verifyLimitShrinksWhenResponsesSlowDown() {
+        val limit = new VegasLimit(50, 1, 100);
+        limit.onSample(FAST, 50, false);
+
+        for (int sample = 0; sample < 5; sample++) {
+            limit.onSample(SLOW, 50, false);
+        }
+
+        assertThat(limit.getLimit()).isLessThan(50);
+    }
+
+    @Test
+    public void verifyIdleSamplesLeaveTheLimitAlone() {
+        val limit = new VegasLimit(50, 1, 100);
+        limit.onSample(FAST, 1, false);
+
+        limit.onSample(SLOW, 1, false);
+
+        assertThat(limit.getLimit()).isEqualTo(50);
+    }
+
+    @Test
+    public void verifyDroppedRequestsBackOffToTheMinimum() {
+        val limit = new VegasLimit(10, 5, 100);
+
+        limit.onSample(FAST, 10, true);
+        assertThat(limit.getLimit()).isEqualTo(9);
+
+        for (int sample = 0; sample < 10; sample++) {
+            limit.onSample(FAST, 10, true);
+        }
+        assertThat(limit.getLimit()).isEqualTo(5);
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.ricall.jpa.demo.jpavalidation.entity.ProductType;
+import io.ricall.jpa.demo.jpavalidation.repository.ProductRepository;
+import io.ricall.jpa.demo.jpavalidation.repository.ProductTypeRepository;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static io.ricall.jpa.demo.jpavalidation.config.CacheConfiguration.PRODUCT_CACHE;
+import static io.ricall.jpa.demo.jpavalidation.config.CacheConfiguration.PRODUCT_TYPE_CACHE;
+import static io.ricall.jpa.demo.jpavalidation.config.CacheConfiguration.TYPE_CACHE;
+import static io.ricall.jpa.demo.jpavalidation.config.RepositoryMetricsPostProcessor.METRIC_NAME;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+public class MetricsConfigurationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductTypeRepository productTypeRepository;
+
+    @Test
+    public void verifyRepositoryCallsAreTimed() {
+        val timer = meterRegistry.timer(METRIC_NAME, "repository", "productTypeRepository", "method", "findByType", "exception", "none");
+        val before = timer.count();
+
+        productTypeRepository.findByType("X1");
+        productRepository.findById(Long.MAX_VALUE);
+
+        assertThat(timer.count()).isEqualTo(before + 1);
+        assertThat(meterRegistry.get(METRIC_NAME).tag("repository", "productRepository").tag("method", "findById").timer().count())
+                .isPositive();
+    }
+
+    @Test
+    public void verifyProductTypeLookupsAreCounted() throws Exception {
+        val hits = meterRegistry.get("product.type.lookups").tag("result", "hit").counter();
+        val misses = meterRegistry.get("product.type.lookups").tag("result", "miss").counter();
+        val hitsBefore = hits.count();
+        val missesBefore = misses.count();
+
+        assertThat(objectMapper.readValue("\"X1\"", ProductType.class)).isNotNull();
+        assertThat(objectMapper.readValue("\"UNKNOWN\"", ProductType.class)).isNull();
+
+        assertThat(hits.count()).isEqualTo(hitsBefore + 1);
+        assertThat(misses.count()).isEqualTo(missesBefore + 1);
+    }
+
+    @Test
+    public void verifyEveryCacheIsMeasured() {
+        for (String cache : new String[] {PRODUCT_CACHE, PRODUCT_TYPE_CACHE, TYPE_CACHE}) {
+            assertThat(meterRegistry.find("cache.gets").tag("cache", cache).tag("result", "hit").functionCounter()).isNotNull();
+            assertThat(meterRegistry.find("cache.gets").tag("cache", cache).tag("result", "miss").functionCounter()).isNotNull();
+            assertThat(meterRegistry.find("cache.size").tag("cache", cache).gauge()).isNotNull();
+        }
+    }
+
+    @Test
+    public void verifyMetricsCanBeScraped() throws Exception {
+        productTypeRepository.findByType("X1");
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().is(200))
+                .andExpect(content().string(containsString("repository_invocations_seconds_count")))
+                .andExpect(content().string(containsString("product_type_lookups_total")))
+                .andExpect(content().string(containsString("cache_gets_total")));
+    }
+
+}
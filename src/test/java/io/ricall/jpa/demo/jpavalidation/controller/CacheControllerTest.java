@@ -23,11 +23,15 @@
 
 package io.ricall.jpa.demo.jpavalidation.controller;
 
+import io.ricall.jpa.demo.jpavalidation.cache.CacheInvalidator;
+import io.ricall.jpa.demo.jpavalidation.cache.ManagedCache;
+import io.ricall.jpa.demo.jpavalidation.service.ClusterCacheService;
+import io.ricall.jpa.demo.jpavalidation.service.ProductTypeRegistry;
 import lombok.val;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.cache.Cache;
@@ -36,6 +40,8 @@ import org.springframework.cache.CacheManager;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -54,12 +60,22 @@ public class CacheControllerTest {
     @Mock
     private Cache cache2;
 
-    @InjectMocks
+    @Mock
+    private ProductTypeRegistry productTypeRegistry;
+
+    @Mock
+    private ClusterCacheService clusterCacheService;
+
     private CacheController controller;
 
+    @BeforeEach
+    public void setup() {
+        controller = new CacheController(cacheManager, new CacheInvalidator(cacheManager, productTypeRegistry), clusterCacheService);
+    }
+
     @AfterEach
     public void cleanup() {
-        verifyNoMoreInteractions(cacheManager, cache1, cache2);
+        verifyNoMoreInteractions(cacheManager, cache1, cache2, productTypeRegistry, clusterCacheService);
     }
 
     @Test
@@ -86,6 +102,67 @@ public class CacheControllerTest {
         verify(cacheManager).getCache("cache2");
         verify(cache1).clear();
         verify(cache2).clear();
+        verify(productTypeRegistry).refresh();
+        verify(clusterCacheService).publish(null, null);
+    }
+
+    @Test
+    public void verifyResetCommandCanResetASingleCache() {
+        when(cacheManager.getCache("type")).thenReturn(cache1);
+        when(cache1.getName()).thenReturn("type");
+
+        val response = controller.clearCache("RESET type");
+
+        assertThat(response.getStatusCode()).isEqualTo(OK);
+        assertThat(response.getBody()).isEqualTo("RESET");
+
+        verify(cacheManager).getCache("type");
+        verify(cache1).clear();
+        verify(cache1).getName();
+        verify(productTypeRegistry).refresh();
+        verify(clusterCacheService).publish("type", null);
+    }
+
+    @Test
+    public void verifyEvictCommandRemovesASingleKey() {
+        when(cacheManager.getCache("product")).thenReturn(cache1);
+        when(cache1.getName()).thenReturn("product");
+
+        val response = controller.clearCache("EVICT product 42");
+
+        assertThat(response.getStatusCode()).isEqualTo(OK);
+        assertThat(response.getBody()).isEqualTo("EVICT");
+
+        verify(cacheManager).getCache("product");
+        verify(cache1).evictIfPresent("42");
+        verify(cache1).getName();
+        verify(clusterCacheService).publish("product", "42");
+    }
+
+    @Test
+    public void verifyCommandsForUnknownCachesResultInBadRequest() {
+        val response = controller.clearCache("EVICT unknown 42");
+
+        assertThat(response.getStatusCode()).isEqualTo(BAD_REQUEST);
+        assertThat(response.getBody()).isEqualTo("UNKNOWN CACHE");
+
+        verify(cacheManager).getCache("unknown");
+    }
+
+    @Test
+    public void verifyResetCommandRebuildsManagedCaches() {
+        val managedCache = mock(ManagedCache.class);
+        when(cacheManager.getCacheNames()).thenReturn(List.of("managed"));
+        when(cacheManager.getCache("managed")).thenReturn(managedCache);
+
+        controller.clearCache("RESET");
+
+        verify(cacheManager).getCacheNames();
+        verify(cacheManager).getCache("managed");
+        verify(managedCache).rebuild();
+        verify(managedCache, never()).clear();
+        verify(productTypeRegistry).refresh();
+        verify(clusterCacheService).publish(null, null);
     }
 
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.ricall.jpa.demo.jpavalidation.config.ConcurrencyLimitProperties;
+import io.ricall.jpa.demo.jpavalidation.config.DatabaseExecutorProperties;
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrencyLimitFilterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private ConcurrencyLimitFilter subject;
+
+    @BeforeEach
+    public void setUp() {
+        val properties = new ConcurrencyLimitProperties();
+        properties.getRead().setInitialLimit(1);
+        properties.getWrite().setInitialLimit(1);
+        val databaseExecutorProperties = new DatabaseExecutorProperties();
+        databaseExecutorProperties.setRetryAfter(Duration.ofSeconds(5));
+        subject = new ConcurrencyLimitFilter(new ObjectMapper(), properties, databaseExecutorProperties);
+        subject.bindTo(registry);
+    }
+
+    @Test
+    public void verifyRequestsOverTheLimitAreRejected() throws Exception {
+        val nested = new MockHttpServletResponse();
+
+        val response = filter("GET", "/product/1", (request, ignored) -> {
+            assertThat(gauge("concurrency.in.flight", "read")).isEqualTo(1);
+            subject.doFilter(request("GET", "/products/search"), nested, new MockFilterChain());
+        });
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(nested.getStatus()).isEqualTo(503);
+        assertThat(nested.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("5");
+        assertThat(nested.getContentAsString()).contains("E004");
+        assertThat(gauge("concurrency.in.flight", "read")).isZero();
+        assertThat(registry.get("concurrency.rejected").tag("group", "read").functionCounter().count()).isEqualTo(1);
+        assertThat(filter("GET", "/products", new MockFilterChain()).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    public void verifyReadsAndWritesAreLimitedSeparately() throws Exception {
+        val nested = new MockHttpServletResponse();
+
+        filter("POST", "/product", (request, ignored) ->
+                subject.doFilter(request("GET", "/product/1"), nested, new MockFilterChain()));
+
+        assertThat(nested.getStatus()).isEqualTo(200);
+        assertThat(gauge("concurrency.limit", "write")).isEqualTo(1);
+    }
+
+    @Test
+    public void verifyHeadAndOptionsAreLimitedAsReads() throws Exception {
+        val head = new MockHttpServletResponse();
+        val options = new MockHttpServletResponse();
+        val write = new MockHttpServletResponse();
+
+        filter("GET", "/product/1", (request, ignored) -> {
+            subject.doFilter(request("HEAD", "/product/1"), head, new MockFilterChain());
+            subject.doFilter(request("OPTIONS", "/products"), options, new MockFilterChain());
+            subject.doFilter(request("POST", "/product"), write, new MockFilterChain());
+        });
+
+        assertThat(head.getStatus()).isEqualTo(503);
+        assertThat(options.getStatus()).isEqualTo(503);
+        assertThat(write.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    public void verifyOtherRoutesAreNotLimited() throws Exception {
+        val nested = new MockHttpServletResponse();
+
+        filter("GET", "/product/1", (request, ignored) ->
+                subject.doFilter(request("GET", "/productTypes"), nested, new MockFilterChain()));
+
+        assertThat(nested.getStatus()).isEqualTo(200);
+    }
+
+    private MockHttpServletResponse filter(String method, String uri, FilterChain chain) throws Exception {
+        val response = new MockHttpServletResponse();
+        subject.doFilter(request(method, uri), response, chain);
+        return response;
+    }
+
+    private double gauge(String name, String group) {
+        return registry.get(name).tag("group", group).gauge().value();
+    }
+
+    private static MockHttpServletRequest request(String method, String uri) {
+        return new MockHttpServletRequest(method, uri);
+    }
+
+}
@@ -23,17 +23,29 @@
 
 package io.ricall.jpa.demo.jpavalidation.controller;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.ricall.jpa.demo.jpavalidation.config.DatabaseExecutorProperties;
 import lombok.val;
 import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.validation.BindException;
+import org.springframework.validation.FieldError;
 import org.springframework.validation.ObjectError;
 
+import java.time.Duration;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.PRECONDITION_FAILED;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
 
 public class ErrorHandlerTest {
 
-    private ErrorHandler subject = new ErrorHandler();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ErrorHandler subject = new ErrorHandler(new DatabaseExecutorProperties(), meterRegistry);
 
     @Test
     public void verifyErrorHandlerConvertsObjectErrorsCorrectly() {
@@ -51,4 +63,43 @@ public class ErrorHandlerTest {
         assertThat(error.getCodeDescription()).isEqualTo("Object Error");
         assertThat(error.getDescription()).isEqualTo("Error in object 'test': codes []; arguments []; default message [object error]");
     }
+
+    @Test
+    public void verifyErrorHandlerCountsValidationFailuresByCode() {
+        val exception = new BindException(this, "foo");
+        exception.addError(new ObjectError("test", "object error"));
+        exception.addError(new FieldError("test", "name", "must not be null"));
+        exception.addError(new FieldError("test", "type", "must not be null"));
+
+        subject.handleBindException(exception);
+
+        assertThat(meterRegistry.get(ErrorHandler.VALIDATION_FAILURES).tag("code", "E001").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(ErrorHandler.VALIDATION_FAILURES).tag("code", "E999").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void verifyErrorHandlerConvertsVersionConflictsToPreconditionFailed() {
+        val response = subject.handleOptimisticLockingFailure(new OptimisticLockingFailureException("stale"));
+
+        assertThat(response.getStatusCode()).isEqualTo(PRECONDITION_FAILED);
+        val error = response.getBody().getErrors().get(0);
+        assertThat(error.getCode()).isEqualTo("E002");
+        assertThat(error.getCodeDescription()).isEqualTo("Version Conflict");
+        assertThat(error.getDescription()).isEqualTo("stale");
+    }
+
+    @Test
+    public void verifyErrorHandlerConvertsRejectedWorkToServiceUnavailable() {
+        val properties = new DatabaseExecutorProperties();
+        properties.setRetryAfter(Duration.ofSeconds(5));
+        subject = new ErrorHandler(properties, meterRegistry);
+
+        val response = subject.handleRejectedExecution(new TaskRejectedException("full"));
+
+        assertThat(response.getStatusCode()).isEqualTo(SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("5");
+        val error = response.getBody().getErrors().get(0);
+        assertThat(error.getCode()).isEqualTo("E003");
+        assertThat(error.getCodeDescription()).isEqualTo("Database Busy");
+    }
 }
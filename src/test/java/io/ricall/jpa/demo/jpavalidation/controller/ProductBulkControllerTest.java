@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.ricall.jpa.demo.jpavalidation.entity.Product;
+import io.ricall.jpa.demo.jpavalidation.service.ProductService;
+import io.ricall.jpa.demo.jpavalidation.service.ProductTypeService;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ProductBulkControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductTypeService productTypeService;
+
+    @Test
+    public void verifyWeCanAddABatchOfProducts() throws Exception {
+        val products = List.of(
+                product("batch product 1", "X1"),
+                new Product(),
+                product("batch product 2", "R3"));
+
+        mockMvc.perform(post("/products/batch")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(products)))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.saved").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results.size()").value(3))
+                .andExpect(jsonPath("$.results[0].index").value(0))
+                .andExpect(jsonPath("$.results[0].id").value(notNullValue()))
+                .andExpect(jsonPath("$.results[0].errors").value(nullValue()))
+                .andExpect(jsonPath("$.results[1].index").value(1))
+                .andExpect(jsonPath("$.results[1].id").value(nullValue()))
+                .andExpect(jsonPath("$.results[1].errors.size()").value(5))
+                .andExpect(jsonPath("$.results[1].errors[0].code").value("E001"))
+                .andExpect(jsonPath("$.results[2].index").value(2))
+                .andExpect(jsonPath("$.results[2].id").value(notNullValue()));
+    }
+
+    @Test
+    public void verifyWeCanImportProductsAsNewlineDelimitedJson() throws Exception {
+        val content = String.join("\n",
+                objectMapper.writeValueAsString(product("imported product 1", "X1")),
+                "{\"name\": \"invalid date\", \"roleStart\": \"not a date\"}",
+                objectMapper.writeValueAsString(new Product()),
+                objectMapper.writeValueAsString(product("imported product 2", "R4")));
+
+        val response = mockMvc.perform(post("/products/import")
+                .contentType("application/x-ndjson")
+                .content(content))
+                .andExpect(status().is(200))
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        val lines = response.trim().split("\n");
+        assertThat(lines).hasSize(4);
+        assertThat(objectMapper.readTree(lines[0]).get("id").asLong()).isPositive();
+        assertThat(objectMapper.readTree(lines[1]).get("errors").get(0).get("code").asText()).isEqualTo("E999");
+        assertThat(objectMapper.readTree(lines[2]).get("errors")).hasSize(5);
+        assertThat(objectMapper.readTree(lines[3]).get("index").asInt()).isEqualTo(3);
+        assertThat(objectMapper.readTree(lines[3]).get("id").asLong()).isPositive();
+    }
+
+    @Test
+    public void verifyWeCanExportAllProducts() throws Exception {
+        val saved = productService.save(product("exported product", "R5"));
+
+        val response = mockMvc.perform(get("/products/export"))
+                .andExpect(status().is(200))
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(exportedIds(response.split("\n"))).contains(saved.getId());
+    }
+
+    @Test
+    public void verifyWeCanExportAllProductsCompressed() throws Exception {
+        val saved = productService.save(product("compressed product", "R5"));
+
+        val response = mockMvc.perform(get("/products/export")
+                .header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().is(200))
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (val input = new GZIPInputStream(new ByteArrayInputStream(response))) {
+            val lines = new String(input.readAllBytes(), StandardCharsets.UTF_8).split("\n");
+            assertThat(exportedIds(lines)).contains(saved.getId());
+        }
+    }
+
+    @Test
+    public void verifyRefusedGzipIsNotUsedForExport() throws Exception {
+        mockMvc.perform(get("/products/export")
+                .header("Accept-Encoding", "identity, gzip;q=0"))
+                .andExpect(status().is(200))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(header().string("Vary", "Accept-Encoding"));
+    }
+
+    private List<Long> exportedIds(String[] lines) throws IOException {
+        val ids = new ArrayList<Long>();
+        for (val line : lines) {
+            val product = objectMapper.readTree(line);
+            assertThat(product.get("type").isTextual()).isTrue();
+            ids.add(product.get("id").asLong());
+        }
+        return ids;
+    }
+
+    private Product product(String name, String type) {
+        return Product.builder()
+                .name(name)
+                .type(productTypeService.fromType(type))
+                .category("category")
+                .subCategory("subCategory")
+                .roleStart(LocalDateTime.of(2021, Month.MARCH, 1, 9, 30, 0))
+                .build();
+    }
+
+}
@@ -32,18 +32,29 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 
 import java.time.LocalDateTime;
 import java.time.Month;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -64,7 +75,7 @@ public class ProductControllerTest {
 
     @Test
     public void verifyNullValuesThrowsAnError() throws Exception {
-        mockMvc.perform(post("/product")
+        perform(post("/product")
                 .accept(MediaType.APPLICATION_JSON)
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(new Product())))
@@ -83,7 +94,7 @@ public class ProductControllerTest {
                 .roleStart(LocalDateTime.of(2021, Month.JANUARY, 15, 12, 0, 0))
                 .build());
 
-        mockMvc.perform(get("/product/" + expected.getId())
+        perform(get("/product/" + expected.getId())
                 .accept("application/json"))
                 .andExpect(status().is(200))
                 .andExpect(jsonPath("$.id").value(expected.getId()))
@@ -95,6 +106,48 @@ public class ProductControllerTest {
                 .andExpect(jsonPath("$.roleEnd").value(nullValue()));
     }
 
+    @Test
+    public void verifyWeCanPageThroughSearchResults() throws Exception {
+        val first = saveSearchableProduct("search product 1");
+        val second = saveSearchableProduct("search product 2");
+        val third = saveSearchableProduct("search product 3");
+
+        perform(get("/products/search")
+                .param("type", "R5")
+                .param("category", "searchable")
+                .param("subCategory", "keyset")
+                .param("size", "2")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.products.size()").value(2))
+                .andExpect(jsonPath("$.products[0].id").value(first.getId()))
+                .andExpect(jsonPath("$.products[1].id").value(second.getId()))
+                .andExpect(jsonPath("$.next").value(second.getId()));
+
+        perform(get("/products/search")
+                .param("type", "R5")
+                .param("category", "searchable")
+                .param("subCategory", "keyset")
+                .param("size", "2")
+                .param("after", String.valueOf(second.getId()))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.products.size()").value(1))
+                .andExpect(jsonPath("$.products[0].id").value(third.getId()))
+                .andExpect(jsonPath("$.products[0].type").value("R5"))
+                .andExpect(jsonPath("$.next").value(nullValue()));
+    }
+
+    @Test
+    public void verifySearchingForAnUnknownTypeReturnsNoProducts() throws Exception {
+        perform(get("/products/search")
+                .param("type", "unknown")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.products.size()").value(0))
+                .andExpect(jsonPath("$.next").value(nullValue()));
+    }
+
     @Test
     public void verifyWeCanAddAProduct() throws Exception {
         val newProduct = Product.builder()
@@ -105,7 +158,7 @@ public class ProductControllerTest {
                 .roleStart(LocalDateTime.of(2021, Month.JANUARY, 16, 15, 5, 20))
                 .build();
 
-        mockMvc.perform(post("/product")
+        perform(post("/product")
                 .accept(MediaType.APPLICATION_JSON)
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(newProduct)))
@@ -138,7 +191,7 @@ public class ProductControllerTest {
                 .roleEnd(LocalDateTime.of(2021, Month.FEBRUARY, 16, 15, 32, 1))
                 .build());
 
-        mockMvc.perform(patch("/product/" + existing.getId())
+        perform(patch("/product/" + existing.getId())
                 .accept(MediaType.APPLICATION_JSON)
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(updated)))
@@ -152,4 +205,163 @@ public class ProductControllerTest {
                 .andExpect(jsonPath("$.roleEnd").value("2021-02-16T15:32:01"));
     }
 
+    @Test
+    public void verifyMergePatchOnlyUpdatesTheSuppliedFields() throws Exception {
+        val existing = saveSearchableProduct("patched product");
+
+        perform(patch("/product/" + existing.getId())
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(ProductController.MERGE_PATCH_JSON_VALUE)
+                .content("{\"name\":\"renamed product\",\"roleEnd\":\"2022-03-10T08:00:00\"}"))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.id").value(existing.getId()))
+                .andExpect(jsonPath("$.name").value("renamed product"))
+                .andExpect(jsonPath("$.type").value("R5"))
+                .andExpect(jsonPath("$.category").value("searchable"))
+                .andExpect(jsonPath("$.subCategory").value("keyset"))
+                .andExpect(jsonPath("$.roleStart").value("2021-03-10T08:00:00"))
+                .andExpect(jsonPath("$.roleEnd").value("2022-03-10T08:00:00"));
+
+        perform(patch("/product/" + existing.getId())
+                .contentType(ProductController.MERGE_PATCH_JSON_VALUE)
+                .content("{\"roleEnd\":null}"))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.name").value("renamed product"))
+                .andExpect(jsonPath("$.roleEnd").value(nullValue()));
+    }
+
+    @Test
+    public void verifyMergePatchValidatesOnlyTheSuppliedFields() throws Exception {
+        val existing = saveSearchableProduct("patched product");
+
+        perform(patch("/product/" + existing.getId())
+                .contentType(ProductController.MERGE_PATCH_JSON_VALUE)
+                .content("{\"name\":null,\"type\":\"UNKNOWN\",\"colour\":\"red\",\"roleStart\":\"yesterday\"}"))
+                .andExpect(status().is(400))
+                .andExpect(jsonPath("$.description").value("Invalid request"))
+                .andExpect(jsonPath("$.errors.size()").value(4));
+
+        perform(get("/product/" + existing.getId()))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.name").value("patched product"));
+    }
+
+    @Test
+    public void verifyPatchingAMissingProductReturnsNotFound() throws Exception {
+        perform(patch("/product/" + Long.MAX_VALUE)
+                .contentType(ProductController.MERGE_PATCH_JSON_VALUE)
+                .content("{\"name\":\"missing product\"}"))
+                .andExpect(status().is(404));
+    }
+
+    @Test
+    public void verifyUnchangedProductsAreNotModified() throws Exception {
+        val existing = saveSearchableProduct("tagged product");
+
+        perform(get("/product/" + existing.getId()))
+                .andExpect(status().is(200))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andExpect(jsonPath("$.version").value(0));
+
+        perform(get("/product/" + existing.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().is(304))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    public void verifyStaleUpdatesAreRejected() throws Exception {
+        val existing = saveSearchableProduct("versioned product");
+
+        perform(patch("/product/" + existing.getId())
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .contentType(ProductController.MERGE_PATCH_JSON_VALUE)
+                .content("{\"name\":\"first update\"}"))
+                .andExpect(status().is(200))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.version").value(1));
+
+        perform(patch("/product/" + existing.getId())
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .contentType(ProductController.MERGE_PATCH_JSON_VALUE)
+                .content("{\"name\":\"lost update\"}"))
+                .andExpect(status().is(412))
+                .andExpect(jsonPath("$.errors[0].code").value("E002"));
+
+        perform(get("/product/" + existing.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().is(200))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.name").value("first update"));
+    }
+
+    @Test
+    public void verifyWeCanLookUpSeveralProducts() throws Exception {
+        val first = saveSearchableProduct("first lookup");
+        val second = saveSearchableProduct("second lookup");
+
+        perform(get("/products")
+                .param("ids", second.getId() + "," + Long.MAX_VALUE + "," + first.getId()))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.size()").value(3))
+                .andExpect(jsonPath("$[0].id").value(second.getId()))
+                .andExpect(jsonPath("$[0].found").value(true))
+                .andExpect(jsonPath("$[0].product.name").value("second lookup"))
+                .andExpect(jsonPath("$[1].id").value(Long.MAX_VALUE))
+                .andExpect(jsonPath("$[1].found").value(false))
+                .andExpect(jsonPath("$[1].product").value(nullValue()))
+                .andExpect(jsonPath("$[2].id").value(first.getId()))
+                .andExpect(jsonPath("$[2].found").value(true))
+                .andExpect(jsonPath("$[2].product.name").value("first lookup"));
+    }
+
+    @Test
+    public void verifyTooManyIdsAreRejected() throws Exception {
+        val ids = LongStream.rangeClosed(1, 1001)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(","));
+
+        perform(get("/products").param("ids", ids))
+                .andExpect(status().is(400))
+                .andExpect(jsonPath("$.description").value("Invalid request"))
+                .andExpect(jsonPath("$.errors[0].code").value("E001"))
+                .andExpect(jsonPath("$.errors[0].description").value(containsString("on field 'ids' rejected value: 1001")));
+    }
+
+    @Test
+    public void verifyProductsAreLoadedAsynchronously() throws Exception {
+        val existing = saveSearchableProduct("async product");
+
+        val result = mockMvc.perform(get("/product/" + existing.getId()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.name").value("async product"));
+    }
+
+    /**
+     * Performs the request, dispatching the async result when the controller returned one.
+     */
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        final ResultActions actions = mockMvc.perform(request);
+        final MvcResult result = actions.andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            return mockMvc.perform(asyncDispatch(result));
+        }
+        return actions;
+    }
+
+    private Product saveSearchableProduct(String name) {
+        return productService.save(Product.builder()
+                .name(name)
+                .type(productTypeService.fromType("R5"))
+                .category("searchable")
+                .subCategory("keyset")
+                .roleStart(LocalDateTime.of(2021, Month.MARCH, 10, 8, 0, 0))
+                .build());
+    }
+
 }
@@ -23,14 +23,23 @@
 
 package io.ricall.jpa.demo.jpavalidation.controller;
 
+import lombok.val;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.ByteArrayInputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -50,4 +59,48 @@ public class ProductTypeControllerTest {
                 .andExpect(jsonPath("$[?(@.type=='X1')].description").value("Test product"));
     }
 
+    @Test
+    public void verifyUnchangedProductTypesAreNotModified() throws Exception {
+        val response = mockMvc.perform(get("/productTypes"))
+                .andExpect(status().is(200))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=300, public"))
+                .andReturn().getResponse();
+        val entityTag = response.getHeader(HttpHeaders.ETAG);
+        assertThat(entityTag).isNotBlank();
+
+        mockMvc.perform(get("/productTypes")
+                .header(HttpHeaders.IF_NONE_MATCH, entityTag))
+                .andExpect(status().is(304))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    public void verifyProductTypesAreServedPreCompressed() throws Exception {
+        val plain = mockMvc.perform(get("/productTypes"))
+                .andReturn().getResponse();
+        val compressed = mockMvc.perform(get("/productTypes")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().is(200))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse();
+
+        assertThat(compressed.getHeader(HttpHeaders.ETAG)).isNotEqualTo(plain.getHeader(HttpHeaders.ETAG));
+        try (val input = new GZIPInputStream(new ByteArrayInputStream(compressed.getContentAsByteArray()))) {
+            assertThat(input.readAllBytes()).isEqualTo(plain.getContentAsByteArray());
+        }
+    }
+
+    @Test
+    public void verifyRefusedGzipIsNotServed() throws Exception {
+        for (val acceptEncoding : new String[] {"gzip;q=0", "identity, gzip;q=0", "*;q=0", "br, *;q=0.5, gzip;q=0"}) {
+            mockMvc.perform(get("/productTypes")
+                    .header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding))
+                    .andExpect(status().is(200))
+                    .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+        }
+        mockMvc.perform(get("/productTypes")
+                .header(HttpHeaders.ACCEPT_ENCODING, "br, *;q=0.5"))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"));
+    }
+
 }
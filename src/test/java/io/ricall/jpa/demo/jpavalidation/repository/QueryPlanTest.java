@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.repository;
+
+import io.ricall.jpa.demo.jpavalidation.model.ProductSearch;
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Statements without a where clause read the whole table by design, any other repository query that H2 plans as a
+ * table scan is missing an index.
+ */
+@Transactional
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "io.ricall.jpa.demo.jpavalidation.repository.RecordingStatementInspector")
+public class QueryPlanTest {
+
+    private static final String TABLE_SCAN = "tableScan";
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductTypeRepository productTypeRepository;
+
+    @Autowired
+    private CacheChangeRepository cacheChangeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setup() {
+        RecordingStatementInspector.clear();
+    }
+
+    @Test
+    public void verifyRepositoryQueriesDoNotScanTables() {
+        val type = productTypeRepository.findByType("X1");
+        productTypeRepository.findById(type.getId());
+        productTypeRepository.findAll();
+
+        productRepository.findById(1L);
+        productRepository.findAllById(List.of(1L, 2L, 3L));
+        productRepository.search(ProductSearch.builder().build(), type, 10);
+        productRepository.search(ProductSearch.builder().after(1L).build(), null, 10);
+        productRepository.search(ProductSearch.builder().after(1L).build(), type, 10);
+        productRepository.search(ProductSearch.builder().category("category").subCategory("subCategory").build(), null, 10);
+        productRepository.search(ProductSearch.builder()
+                .category("category")
+                .subCategory("subCategory")
+                .roleStartFrom(LocalDateTime.of(2021, 1, 1, 0, 0))
+                .roleStartTo(LocalDateTime.of(2022, 1, 1, 0, 0))
+                .after(1L)
+                .build(), type, 10);
+        try (val products = productRepository.streamAll()) {
+            assertThat(products.count()).isNotNegative();
+        }
+        cacheChangeRepository.findByIdGreaterThanOrderByIdAsc(1L);
+
+        val filtered = RecordingStatementInspector.statements().stream()
+                .filter(sql -> sql.toLowerCase(Locale.ROOT).startsWith("select"))
+                .filter(sql -> sql.toLowerCase(Locale.ROOT).contains(" where "))
+                .distinct()
+                .collect(Collectors.toList());
+        assertThat(filtered).isNotEmpty();
+
+        val scans = filtered.stream()
+                .map(sql -> sql + "\n    " + explain(sql))
+                .filter(plan -> plan.contains(TABLE_SCAN))
+                .collect(Collectors.toList());
+        assertThat(scans).as("queries falling back to a table scan").isEmpty();
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                val parameters = statement.getParameterMetaData();
+                for (int index = 1; index <= parameters.getParameterCount(); index++) {
+                    statement.setObject(index, sampleValue(parameters.getParameterType(index)));
+                }
+                return plan(statement);
+            }
+        });
+    }
+
+    private static String plan(PreparedStatement statement) throws SQLException {
+        try (ResultSet result = statement.executeQuery()) {
+            result.next();
+            return result.getString(1);
+        }
+    }
+
+    private static Object sampleValue(int sqlType) {
+        switch (sqlType) {
+            case Types.BIGINT:
+            case Types.INTEGER:
+                return 1L;
+            case Types.TIMESTAMP:
+                return Timestamp.valueOf("2021-01-01 00:00:00");
+            default:
+                return "X1";
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.repository;
+
+import io.ricall.jpa.demo.jpavalidation.entity.Product;
+import io.ricall.jpa.demo.jpavalidation.entity.ProductType;
+import io.ricall.jpa.demo.jpavalidation.service.ProductTypeRegistry;
+import lombok.val;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class SecondLevelCacheTest {
+
+    private static final int PRODUCTS = 12;
+    private static final List<String> TYPES = List.of("T1", "X1", "R3", "R4");
+    private static final String UPDATE_DESCRIPTION = "UPDATE PRODUCT_TYPE SET DESCRIPTION = ? WHERE TYPE = ?";
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductTypeRepository productTypeRepository;
+
+    @Autowired
+    private ProductTypeRegistry productTypeRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setup() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        productTypeRegistry.refresh();
+    }
+
+    @Test
+    public void verifyLoadingProductsDoesNotSelectProductTypes() {
+        val ids = IntStream.range(0, PRODUCTS)
+                .mapToObj(index -> productRepository.save(product(TYPES.get(index % TYPES.size()))))
+                .map(Product::getId)
+                .collect(Collectors.toList());
+        statistics.clear();
+
+        assertThat(productRepository.findAllById(ids))
+                .hasSize(PRODUCTS)
+                .allSatisfy(product -> assertThat(product.getType()).isNotNull());
+        ids.forEach(id -> assertThat(productRepository.findById(id)).isPresent());
+
+        val region = statistics.getDomainDataRegionStatistics(ProductType.CACHE_REGION);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1 + PRODUCTS);
+        assertThat(region.getMissCount()).isZero();
+        assertThat(region.getHitCount()).isPositive();
+    }
+
+    @Test
+    public void verifyFindByTypeIsServedFromTheQueryCache() {
+        statistics.clear();
+
+        productTypeRepository.findByType("X1");
+        productTypeRepository.findByType("X1");
+
+        assertThat(statistics.getQueryCacheMissCount()).isEqualTo(1);
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void verifyRefreshEvictsChangedProductTypes() {
+        assertThat(productTypeRepository.findByType("R5").getDescription()).isEqualTo("Retail Five");
+        jdbcTemplate.update(UPDATE_DESCRIPTION, "Retail 5", "R5");
+        try {
+            assertThat(productTypeRepository.findByType("R5").getDescription()).isEqualTo("Retail Five");
+
+            productTypeRegistry.refresh();
+
+            assertThat(productTypeRepository.findByType("R5").getDescription()).isEqualTo("Retail 5");
+            assertThat(productTypeRegistry.fromType("R5").getDescription()).isEqualTo("Retail 5");
+        } finally {
+            jdbcTemplate.update(UPDATE_DESCRIPTION, "Retail Five", "R5");
+            productTypeRegistry.refresh();
+        }
+    }
+
+    private Product product(String type) {
+        return Product.builder()
+                .name("cached product")
+                .type(productTypeRepository.findByType(type))
+                .category("category")
+                .subCategory("subCategory")
+                .roleStart(LocalDateTime.of(2021, Month.JANUARY, 15, 12, 0, 0))
+                .build();
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.service.implementation;
+
+import io.ricall.jpa.demo.jpavalidation.JpaValidationApplication;
+import io.ricall.jpa.demo.jpavalidation.controller.CacheController;
+import io.ricall.jpa.demo.jpavalidation.service.ProductTypeRegistry;
+import io.ricall.jpa.demo.jpavalidation.service.ProductTypeService;
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs two nodes against one H2 database and checks that cache commands on one node reach the other.
+ */
+public class DefaultClusterCacheServiceTest {
+
+    private static final long TIMEOUT_MILLIS = 10_000;
+    private static final long POLL_MILLIS = 25;
+
+    private ConfigurableApplicationContext node1;
+    private ConfigurableApplicationContext node2;
+
+    @BeforeEach
+    public void setup() {
+        val url = "--spring.datasource.url=jdbc:h2:mem:cluster-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        node1 = startNode(url);
+        node2 = startNode(url);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        node1.close();
+        node2.close();
+    }
+
+    @Test
+    public void verifyEvictIsAppliedOnOtherNodes() throws InterruptedException {
+        val service1 = node1.getBean(ProductTypeService.class);
+        val service2 = node2.getBean(ProductTypeService.class);
+        assertThat(service1.fromType("R3").getDescription()).isEqualTo("Retail Three");
+        assertThat(service2.fromType("R3").getDescription()).isEqualTo("Retail Three");
+
+        updateDescription("R3", "Retail 3");
+        node1.getBean(CacheController.class).clearCache("EVICT type R3");
+
+        assertThat(service1.fromType("R3").getDescription()).isEqualTo("Retail 3");
+        awaitDescription(() -> service2.fromType("R3").getDescription(), "Retail 3");
+        awaitDescription(() -> node2.getBean(ProductTypeRegistry.class).fromType("R3").getDescription(), "Retail 3");
+    }
+
+    @Test
+    public void verifyResetIsAppliedOnOtherNodes() throws InterruptedException {
+        val registry2 = node2.getBean(ProductTypeRegistry.class);
+        assertThat(registry2.fromType("R4").getDescription()).isEqualTo("Retail Four");
+
+        updateDescription("R4", "Retail 4");
+        node1.getBean(CacheController.class).clearCache("RESET");
+
+        awaitDescription(() -> registry2.fromType("R4").getDescription(), "Retail 4");
+        awaitDescription(() -> node2.getBean(ProductTypeService.class).fromType("R4").getDescription(), "Retail 4");
+    }
+
+    /**
+     * A change with a lower id becoming visible after the node has already applied a change with a higher id (its
+     * transaction committed later) is still applied.
+     */
+    @Test
+    public void verifyChangesCommittedOutOfOrderAreApplied() throws InterruptedException {
+        val service2 = node2.getBean(ProductTypeService.class);
+        assertThat(service2.fromType("R3").getDescription()).isEqualTo("Retail Three");
+        assertThat(service2.fromType("R4").getDescription()).isEqualTo("Retail Four");
+        updateDescription("R3", "Retail 3");
+        updateDescription("R4", "Retail 4");
+
+        val jdbcTemplate = node1.getBean(JdbcTemplate.class);
+        val latest = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(ID), 0) FROM CACHE_CHANGELOG", Long.class);
+        insertChange(latest + 2, "R4");
+        awaitDescription(() -> service2.fromType("R4").getDescription(), "Retail 4");
+
+        insertChange(latest + 1, "R3");
+        awaitDescription(() -> service2.fromType("R3").getDescription(), "Retail 3");
+    }
+
+    /**
+     * Both nodes run in this JVM and would share the default JCache manager behind the Hibernate second level cache,
+     * which is closed with the first node, so it is disabled for the nodes.
+     */
+    private static ConfigurableApplicationContext startNode(String url) {
+        return new SpringApplicationBuilder(JpaValidationApplication.class)
+                .run(url, "--server.port=0", "--jpa-validation.cluster.poll-interval=50ms",
+                        "--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                        "--spring.jpa.properties.hibernate.cache.use_query_cache=false");
+    }
+
+    private void updateDescription(String type, String description) {
+        node1.getBean(JdbcTemplate.class).update("UPDATE PRODUCT_TYPE SET DESCRIPTION = ? WHERE TYPE = ?", description, type);
+    }
+
+    private void insertChange(long id, String type) {
+        node1.getBean(JdbcTemplate.class).update("INSERT INTO CACHE_CHANGELOG (ID, NODE_ID, CACHE_NAME, CACHE_KEY, CREATED) "
+                + "VALUES (?, 'another node', 'type', ?, CURRENT_TIMESTAMP)", id, type);
+    }
+
+    private static void awaitDescription(Supplier<String> description, String expected) throws InterruptedException {
+        val deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!expected.equals(description.get()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(POLL_MILLIS);
+        }
+        assertThat(description.get()).isEqualTo(expected);
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.service.implementation;
+
+import io.ricall.jpa.demo.jpavalidation.entity.Product;
+import io.ricall.jpa.demo.jpavalidation.model.ProductLookup;
+import io.ricall.jpa.demo.jpavalidation.repository.RecordingStatementInspector;
+import io.ricall.jpa.demo.jpavalidation.service.ProductService;
+import io.ricall.jpa.demo.jpavalidation.service.ProductTypeService;
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static io.ricall.jpa.demo.jpavalidation.config.CacheConfiguration.PRODUCT_CACHE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "io.ricall.jpa.demo.jpavalidation.repository.RecordingStatementInspector")
+public class ProductCacheTest {
+
+    private static final String UPDATE_NAME = "UPDATE PRODUCT SET NAME = ? WHERE ID = ?";
+    private static final int READERS = 16;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductTypeService productTypeService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Cache cache;
+
+    @BeforeEach
+    public void setup() {
+        cache = cacheManager.getCache(PRODUCT_CACHE);
+        cache.clear();
+    }
+
+    @Test
+    public void verifySaveWritesThroughToTheCache() {
+        val saved = productService.save(product("cached product"));
+
+        assertThat(cache.get(Long.toString(saved.getId()), Product.class)).isEqualTo(saved);
+    }
+
+    @Test
+    public void verifyFindByIdReadsThroughTheCache() {
+        val saved = productService.save(product("cached product"));
+        cache.clear();
+
+        assertThat(productService.findById(saved.getId())).contains(saved);
+        jdbcTemplate.update(UPDATE_NAME, "changed outside the cache", saved.getId());
+
+        assertThat(productService.findById(saved.getId()).map(Product::getName)).contains("cached product");
+        cache.evict(Long.toString(saved.getId()));
+        assertThat(productService.findById(saved.getId()).map(Product::getName)).contains("changed outside the cache");
+    }
+
+    @Test
+    public void verifyUpdateWritesThroughToTheCache() {
+        val saved = productService.save(product("cached product"));
+        assertThat(productService.findById(saved.getId())).contains(saved);
+
+        productService.update(saved.getId(), product("updated product"), List.of("name"), null);
+
+        assertThat(productService.findById(saved.getId()).map(Product::getName)).contains("updated product");
+    }
+
+    @Test
+    public void verifyFindAllByIdReadsThroughTheCache() {
+        val cached = productService.save(product("cached product"));
+        val loaded = productService.save(product("loaded product"));
+        cache.evict(Long.toString(loaded.getId()));
+        jdbcTemplate.update(UPDATE_NAME, "changed outside the cache", cached.getId());
+
+        val lookups = productService.findAllById(List.of(loaded.getId(), cached.getId(), loaded.getId()));
+
+        assertThat(lookups).extracting(ProductLookup::getId).containsExactly(loaded.getId(), cached.getId(), loaded.getId());
+        assertThat(lookups).extracting(lookup -> lookup.getProduct().getName())
+                .containsExactly("loaded product", "cached product", "loaded product");
+        assertThat(cache.get(Long.toString(loaded.getId()), Product.class)).isEqualTo(loaded);
+    }
+
+    /**
+     * Readers arriving while the product is loaded wait for that load and later readers hit the cache, so however the
+     * readers are scheduled the product is only selected once.
+     */
+    @Test
+    public void verifyConcurrentReadsOfTheSameProductShareOneQuery() throws Exception {
+        val saved = productService.save(product("popular product"));
+        cache.clear();
+        RecordingStatementInspector.clear();
+
+        val executor = Executors.newFixedThreadPool(READERS);
+        try {
+            val start = new CountDownLatch(1);
+            val results = new ArrayList<Future<Optional<Product>>>();
+            for (int index = 0; index < READERS; index++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return productService.findById(saved.getId());
+                }));
+            }
+            start.countDown();
+
+            for (val result : results) {
+                assertThat(result.get().map(Product::getName)).contains("popular product");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(RecordingStatementInspector.statements().stream()
+                .map(sql -> sql.toLowerCase(Locale.ROOT))
+                .filter(sql -> sql.startsWith("select") && sql.contains(" from product ")))
+                .hasSize(1);
+    }
+
+    @Test
+    public void verifyMissingProductsAreNotCached() {
+        assertThat(productService.findById(Long.MAX_VALUE)).isEmpty();
+        assertThat(cache.get(Long.toString(Long.MAX_VALUE))).isNull();
+    }
+
+    private Product product(String name) {
+        return Product.builder()
+                .name(name)
+                .type(productTypeService.fromType("X1"))
+                .category("category")
+                .subCategory("subCategory")
+                .roleStart(LocalDateTime.of(2021, Month.JANUARY, 15, 12, 0, 0))
+                .build();
+    }
+
+}
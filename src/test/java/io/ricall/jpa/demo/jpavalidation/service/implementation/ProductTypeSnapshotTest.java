@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.service.implementation;
+
+import io.ricall.jpa.demo.jpavalidation.entity.ProductType;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProductTypeSnapshotTest {
+
+    @Test
+    public void verifyTypesCanBeFoundInACharacterBuffer() {
+        val snapshot = new ProductTypeSnapshot(List.of(
+                new ProductType(1, "X1", "Test product"),
+                new ProductType(2, "R3", "Retail Three")));
+        val buffer = "{\"type\":\"R3\",\"other\":\"X1\"}".toCharArray();
+
+        assertThat(snapshot.find(buffer, 9, 2).getDescription()).isEqualTo("Retail Three");
+        assertThat(snapshot.find(buffer, 22, 2).getDescription()).isEqualTo("Test product");
+        assertThat(snapshot.find(buffer, 9, 1)).isNull();
+        assertThat(snapshot.find("R3").getId()).isEqualTo(2);
+        assertThat(snapshot.find("R33")).isNull();
+        assertThat(snapshot.find("")).isNull();
+    }
+
+    @Test
+    public void verifyCollidingTypesCanAllBeFound() {
+        val types = new ArrayList<ProductType>();
+        for (int index = 0; index < 100; index++) {
+            types.add(new ProductType(index, "T" + index, "Type " + index));
+        }
+        // "Aa" and "BB" share the same String hash code
+        types.add(new ProductType(100, "Aa", "Aa"));
+        types.add(new ProductType(101, "BB", "BB"));
+        val snapshot = new ProductTypeSnapshot(types);
+
+        for (val type : types) {
+            assertThat(snapshot.find(type.getType().toCharArray(), 0, type.getType().length())).isSameAs(type);
+            assertThat(snapshot.find(type.getType())).isSameAs(type);
+        }
+        assertThat(snapshot.getTypes()).hasSize(102);
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.service.implementation;
+
+import io.ricall.jpa.demo.jpavalidation.entity.Product;
+import io.ricall.jpa.demo.jpavalidation.repository.ProductRepository;
+import io.ricall.jpa.demo.jpavalidation.repository.ProductTypeRepository;
+import io.ricall.jpa.demo.jpavalidation.service.ProductService;
+import lombok.val;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "jpa-validation.cluster.enabled=false",
+        "jpa-validation.write-coalescing.enabled=true",
+        "jpa-validation.write-coalescing.linger=50ms"
+})
+public class ProductWriteCoalescerTest {
+
+    private static final int WRITERS = 20;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductTypeRepository productTypeRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    public void verifyConcurrentSavesShareTransactions() throws Exception {
+        val statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        val results = saveConcurrently(WRITERS, -1);
+
+        val ids = new ArrayList<Long>();
+        for (Future<Product> result : results) {
+            val product = result.get();
+            assertThat(product.getId()).isPositive();
+            assertThat(productRepository.findById(product.getId())).isPresent();
+            ids.add(product.getId());
+        }
+        assertThat(ids).doesNotHaveDuplicates();
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(WRITERS);
+        assertThat(statistics.getSuccessfulTransactionCount()).isLessThan(WRITERS / 2);
+    }
+
+    @Test
+    public void verifyInvalidProductOnlyFailsItsOwnSave() throws Exception {
+        val invalid = 3;
+        val results = saveConcurrently(WRITERS, invalid);
+
+        for (int index = 0; index < WRITERS; index++) {
+            if (index == invalid) {
+                assertThat(catchFailure(results.get(index))).isNotNull();
+            } else {
+                val product = results.get(index).get();
+                assertThat(productRepository.findById(product.getId()))
+                        .hasValueSatisfying(saved -> assertThat(saved.getName()).isEqualTo("coalesced product " + saved.getCategory()));
+            }
+        }
+    }
+
+    private List<Future<Product>> saveConcurrently(int count, int invalid) throws InterruptedException {
+        val type = productTypeRepository.findByType("X1");
+        val executor = Executors.newFixedThreadPool(count);
+        val start = new CountDownLatch(1);
+        try {
+            val results = new ArrayList<Future<Product>>();
+            for (int index = 0; index < count; index++) {
+                val product = Product.builder()
+                        .name("coalesced product " + index)
+                        .type(type)
+                        .category(String.valueOf(index))
+                        .subCategory("subCategory")
+                        .roleStart(LocalDateTime.of(2021, Month.JANUARY, 15, 12, 0, 0))
+                        .build();
+                if (index == invalid) {
+                    product.setName(null);
+                }
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return productService.save(product);
+                }));
+            }
+            start.countDown();
+            for (Future<Product> result : results) {
+                catchFailure(result);
+            }
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Throwable catchFailure(Future<Product> result) throws InterruptedException {
+        try {
+            result.get();
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+
+}
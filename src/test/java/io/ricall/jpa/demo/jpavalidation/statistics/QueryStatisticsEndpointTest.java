@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.statistics;
+
+import io.ricall.jpa.demo.jpavalidation.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "jpa-validation.query-statistics.enabled=true")
+@AutoConfigureMockMvc
+public class QueryStatisticsEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    public void verifyDataSourceIsMeasured() {
+        assertThat(dataSource).isInstanceOf(StatisticsDataSource.class);
+    }
+
+    @Test
+    public void verifyStatementsAreReported() throws Exception {
+        productRepository.findById(Long.MAX_VALUE);
+
+        mockMvc.perform(get("/actuator/queries"))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.statements[*].sql", hasItem(containsString("from product product0_ where product0_.id=?"))))
+                .andExpect(jsonPath("$.slowest").isArray())
+                .andExpect(jsonPath("$.slowQueries").isArray())
+                .andExpect(jsonPath("$.hibernate.enabled").value(true));
+    }
+
+    @Test
+    public void verifyStatisticsCanBeReset() throws Exception {
+        productRepository.findById(Long.MAX_VALUE);
+
+        mockMvc.perform(delete("/actuator/queries"))
+                .andExpect(status().is(204));
+
+        mockMvc.perform(get("/actuator/queries"))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.statements[*].sql", not(hasItem(containsString("from product product0_ where")))));
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.statistics;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class QueryStatisticsTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(200);
+
+    @Test
+    public void verifyLiteralsAndParameterListsAreNormalized() {
+        assertThat(SqlNormalizer.normalize("select product0_.id from product product0_\n  where product0_.id in (?, ?, ?, ?)"))
+                .isEqualTo("select product0_.id from product product0_ where product0_.id in (?...)");
+        assertThat(SqlNormalizer.normalize("select * from type where type = 'it''s' and id > 42 limit 10"))
+                .isEqualTo("select * from type where type = ? and id > ? limit ?");
+    }
+
+    @Test
+    public void verifyExecutionsAreAggregatedByStatement() {
+        val statistics = new QueryStatistics(10, Duration.ofMillis(100), 5);
+
+        statistics.record("select * from product where id = 1", FAST, 0).addRows(1);
+        statistics.record("select * from product where id = 2", SLOW, 0).addRows(1);
+        statistics.record("update product set name = 'X' where id = 1", FAST, 1);
+
+        assertThat(statistics.getStatements())
+                .extracting("sql", "count", "rows")
+                .containsExactly(
+                        tuple("select * from product where id = ?", 2L, 2L),
+                        tuple("update product set name = ? where id = ?", 1L, 1L));
+        assertThat(statistics.getSlowest(1))
+                .extracting("sql")
+                .containsExactly("select * from product where id = ?");
+    }
+
+    @Test
+    public void verifyLeastExecutedStatementIsReplacedWhenFull() {
+        val statistics = new QueryStatistics(2, Duration.ofMillis(100), 5);
+
+        for (int execution = 0; execution < 3; execution++) {
+            statistics.record("select a from t", FAST, 0);
+        }
+        statistics.record("select b from t", FAST, 0);
+        statistics.record("select c from t", FAST, 0);
+
+        assertThat(statistics.getStatements())
+                .extracting("sql", "count", "countError")
+                .containsExactly(
+                        tuple("select a from t", 3L, 0L),
+                        tuple("select c from t", 2L, 1L));
+    }
+
+    @Test
+    public void verifySlowQueriesAreKeptNewestFirst() {
+        val statistics = new QueryStatistics(10, Duration.ofMillis(100), 2);
+
+        statistics.record("select 1", SLOW, 0);
+        statistics.record("select 2", FAST, 0);
+        statistics.record("select 3", SLOW, 0);
+        statistics.record("select 4", SLOW, 0);
+
+        assertThat(statistics.getSlowQueries())
+                .extracting("sql")
+                .containsExactly("select 4", "select 3");
+
+        statistics.clear();
+
+        assertThat(statistics.getSlowQueries()).isEmpty();
+        assertThat(statistics.getStatements()).isEmpty();
+    }
+
+    @Test
+    public void verifyPercentilesAreWithinTheBucketResolution() {
+        val histogram = new LogHistogram();
+        assertThat(histogram.percentile(99)).isZero();
+
+        for (int value = 0; value < 99; value++) {
+            histogram.record(1000);
+        }
+        histogram.record(100_000);
+
+        assertThat(histogram.percentile(99)).isBetween(1000L, 1250L);
+        assertThat(histogram.percentile(100)).isBetween(100_000L, 125_000L);
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2021 Richard Allwood
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.ricall.jpa.demo.jpavalidation.timing;
+
+import lombok.val;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ServerTimingTest {
+
+    @BeforeAll
+    public static void enable() {
+        ServerTiming.enable();
+    }
+
+    @AfterAll
+    public static void disable() {
+        ServerTiming.disable();
+    }
+
+    @Test
+    public void verifyPhasesAreOnlyRecordedIntoTheBoundTiming() {
+        val timing = new ServerTiming();
+        ServerTiming.record(Phase.DB, 1_000_000);
+        assertThat(ServerTiming.start()).isZero();
+
+        val previous = ServerTiming.bind(timing);
+        try {
+            ServerTiming.record(Phase.DB, 1_500_000);
+            ServerTiming.record(Phase.DB, 2_500_000);
+            ServerTiming.stop(Phase.PARSE, ServerTiming.start());
+        } finally {
+            ServerTiming.restore(previous);
+        }
+
+        assertThat(timing.getCount(Phase.DB)).isEqualTo(2);
+        assertThat(timing.getDuration(Phase.DB)).isEqualTo(4_000_000);
+        assertThat(timing.getCount(Phase.PARSE)).isEqualTo(1);
+        assertThat(timing.getCount(Phase.VALIDATE)).isZero();
+        assertThat(timing.toHeader()).startsWith("parse;dur=").contains(", db;dur=4.000, total;dur=").doesNotContain("validate");
+        assertThat(timing.toLogFields()).contains("validate=0.000 db=4.000");
+    }
+
+    @Test
+    public void verifyTimingIsPropagatedToTasks() throws Exception {
+        val timing = new ServerTiming();
+        val executor = Executors.newSingleThreadExecutor();
+        try {
+            val previous = ServerTiming.bind(timing);
+            final Runnable task;
+            try {
+                task = ServerTiming.propagate(() -> ServerTiming.record(Phase.DB, 1_000_000));
+            } finally {
+                ServerTiming.restore(previous);
+            }
+            executor.submit(task).get();
+            executor.submit(() -> ServerTiming.record(Phase.DB, 1_000_000)).get();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(timing.getCount(Phase.DB)).isEqualTo(1);
+    }
+
+}